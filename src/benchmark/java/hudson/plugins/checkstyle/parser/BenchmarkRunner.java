@@ -0,0 +1,74 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the {@link CheckStyleParserBenchmark} with the GC profiler and prints
+ * the number of allocated bytes per created warning. All JMH command line
+ * options are supported, e.g. <code>-p errors=1000,100000</code> to run a
+ * subset of the parameters only.
+ *
+ * @author Ulli Hafner
+ */
+public final class BenchmarkRunner {
+    private static final String[] ALLOCATION_KEYS = {"gc.alloc.rate.norm", "\u00b7gc.alloc.rate.norm"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            JMH command line options
+     * @throws RunnerException
+     *             if the benchmark failed
+     * @throws CommandLineOptionException
+     *             if the command line options are invalid
+     */
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(CheckStyleParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class);
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        System.out.println();
+        System.out.println("Allocated bytes per warning:");
+        for (RunResult result : results) {
+            Result<?> allocation = getAllocation(result.getSecondaryResults());
+            if (allocation != null) {
+                int errors = Integer.parseInt(result.getParams().getParam("errors"));
+                StringBuilder parameters = new StringBuilder();
+                for (String key : result.getParams().getParamsKeys()) {
+                    parameters.append(key).append('=').append(result.getParams().getParam(key)).append(' ');
+                }
+                System.out.println(String.format("%-20s %-70s %12.1f",
+                        result.getParams().getBenchmark().replaceFirst(".*\\.", ""),
+                        parameters, allocation.getScore() / errors));
+            }
+        }
+    }
+
+    private static Result<?> getAllocation(final Map<String, Result> secondaryResults) {
+        for (String key : ALLOCATION_KEYS) {
+            if (secondaryResults.containsKey(key)) {
+                return secondaryResults.get(key);
+            }
+        }
+        return null;
+    }
+
+    private BenchmarkRunner() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,268 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Measures the throughput of the {@link CheckStyleParser} for synthetic
+ * reports. The auxiliary counters report the number of warnings and bytes
+ * per second, the allocation rate per warning is computed by the
+ * {@link BenchmarkRunner} from the results of the GC profiler. The source
+ * files of the synthetic reports do not exist, so the benchmark does not
+ * include reading source files.
+ * <p>
+ * The digester builds the document tree of the whole report before the
+ * warnings are created, so the digester benchmarks use the
+ * {@link SmallReport small reports} only. The streaming parser is measured
+ * with the {@link LargeReport large reports} as well. The default parameters
+ * cover the sizes and the number of errors per file, further combinations
+ * can be selected with the JMH option <code>-p</code>.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class CheckStyleParserBenchmark {
+    /** Seed of the report generator. */
+    private static final long SEED = 4711;
+
+    /**
+     * Parses the report with the digester.
+     *
+     * @param report
+     *            the synthetic report
+     * @param counters
+     *            the counters of warnings and bytes
+     * @return the warnings
+     * @throws IOException
+     *             if the report could not be read
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Benchmark
+    public Collection<FileAnnotation> parse(final SmallReport report, final Counters counters)
+            throws IOException, InvocationTargetException {
+        return count(report.parse(new CheckStyleParser("UTF-8", false)), counters, report.getSize());
+    }
+
+    /**
+     * Parses the report with the StAX streaming parser.
+     *
+     * @param report
+     *            the synthetic report
+     * @param counters
+     *            the counters of warnings and bytes
+     * @return the warnings
+     * @throws IOException
+     *             if the report could not be read
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Benchmark
+    public Collection<FileAnnotation> parseStreaming(final LargeReport report, final Counters counters)
+            throws IOException, InvocationTargetException {
+        return count(report.parse(new CheckStyleParser("UTF-8", true)), counters, report.getSize());
+    }
+
+    /**
+     * Converts the document tree of the report that has been read by the digester.
+     *
+     * @param model
+     *            the document tree of the report
+     * @param counters
+     *            the counters of warnings and bytes
+     * @return the warnings
+     * @throws InterruptedException
+     *             if the conversion has been interrupted
+     * @throws InvocationTargetException
+     *             if a source file could not be processed
+     */
+    @Benchmark
+    public Collection<FileAnnotation> convert(final Model model, final Counters counters)
+            throws InterruptedException, InvocationTargetException {
+        return count(new CheckStyleParser("UTF-8", false).convert(model.checkStyle, "benchmark"), counters, 0);
+    }
+
+    private Collection<FileAnnotation> count(final Collection<FileAnnotation> warnings, final Counters counters,
+            final long bytes) {
+        counters.warnings += warnings.size();
+        counters.bytes += bytes;
+        return warnings;
+    }
+
+    /**
+     * A synthetic report. The total number of errors is defined by the
+     * subclasses.
+     */
+    @State(Scope.Benchmark)
+    public abstract static class Report {
+        /** Number of errors per source file. */
+        @Param({"10", "1000"})
+        private int errorsPerFile;
+        /** Number of distinct messages. */
+        @Param({"1000"})
+        private int messageVariety;
+        /** Relative weights of the severities error, warning and info. */
+        @Param({"1:4:2"})
+        private String severityMix;
+
+        private java.io.File file;
+        private long size;
+
+        /**
+         * Returns the total number of errors in the report.
+         *
+         * @return the number of errors
+         */
+        protected abstract int getErrors();
+
+        /**
+         * Creates the synthetic report.
+         *
+         * @throws IOException
+         *             if the report could not be written
+         */
+        @Setup(Level.Trial)
+        public void createReport() throws IOException {
+            file = java.io.File.createTempFile("checkstyle-benchmark", ".xml");
+            size = new SyntheticReportGenerator(SEED).write(file, getErrors(), errorsPerFile,
+                    messageVariety, severityMix);
+        }
+
+        /**
+         * Deletes the synthetic report.
+         */
+        @TearDown(Level.Trial)
+        public void deleteReport() {
+            FileUtils.deleteQuietly(file);
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        Collection<FileAnnotation> parse(final CheckStyleParser parser)
+                throws IOException, InvocationTargetException {
+            InputStream input = open();
+            try {
+                return parser.parse(input, "benchmark");
+            }
+            finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+
+        InputStream open() throws IOException {
+            return new FileInputStream(file);
+        }
+    }
+
+    /**
+     * A report that fits into memory as a document tree of the digester.
+     */
+    @State(Scope.Benchmark)
+    public static class SmallReport extends Report {
+        /** Total number of errors in the report. */
+        @Param({"1000", "100000"})
+        private int errors;
+
+        @Override
+        protected int getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * A report that is parsed by the streaming parser only.
+     */
+    @State(Scope.Benchmark)
+    public static class LargeReport extends Report {
+        /** Total number of errors in the report. */
+        @Param({"1000", "100000", "1000000", "10000000"})
+        private int errors;
+
+        @Override
+        protected int getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * The document tree of the report, created only for the conversion benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Model {
+        private CheckStyle checkStyle;
+
+        /**
+         * Reads the document tree of the synthetic report.
+         *
+         * @param report
+         *            the synthetic report
+         * @throws IOException
+         *             if the report could not be read
+         * @throws SAXException
+         *             if the report could not be parsed
+         */
+        @Setup(Level.Trial)
+        public void read(final SmallReport report) throws IOException, SAXException {
+            InputStream input = report.open();
+            try {
+                checkStyle = new CheckStyleParser().parseModel(input);
+            }
+            finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+    }
+
+    /**
+     * Counts the created warnings and the read bytes. JMH reports these
+     * counters as rates, i.e. warnings per second and bytes per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        /** Number of created warnings. */
+        public long warnings;
+        /** Number of read bytes. */
+        public long bytes;
+
+        /**
+         * Resets the counters before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            warnings = 0;
+            bytes = 0;
+        }
+    }
+}
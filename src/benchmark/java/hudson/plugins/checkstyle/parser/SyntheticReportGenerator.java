@@ -0,0 +1,121 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Creates synthetic Checkstyle reports for the benchmarks. The reports are
+ * generated with a seeded random number generator, so the same parameters
+ * always create the same report.
+ *
+ * @author Ulli Hafner
+ */
+public class SyntheticReportGenerator {
+    private static final String[] SOURCES = {
+            "com.puppycrawl.tools.checkstyle.checks.javadoc.JavadocMethodCheck",
+            "com.puppycrawl.tools.checkstyle.checks.javadoc.JavadocStyleCheck",
+            "com.puppycrawl.tools.checkstyle.checks.blocks.RightCurlyCheck",
+            "com.puppycrawl.tools.checkstyle.checks.blocks.NeedBracesCheck",
+            "com.puppycrawl.tools.checkstyle.checks.coding.MagicNumberCheck",
+            "com.puppycrawl.tools.checkstyle.checks.coding.HiddenFieldCheck",
+            "com.puppycrawl.tools.checkstyle.checks.design.FinalClassCheck",
+            "com.puppycrawl.tools.checkstyle.checks.imports.UnusedImportsCheck",
+            "com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck",
+            "com.puppycrawl.tools.checkstyle.checks.whitespace.WhitespaceAroundCheck"};
+    private static final String[] SEVERITIES = {"error", "warning", "info"};
+    private static final int MAXIMUM_LINE = 2000;
+    private static final int MAXIMUM_COLUMN = 120;
+    private static final int PACKAGES = 50;
+
+    private final Random random;
+
+    /**
+     * Creates a new instance of {@link SyntheticReportGenerator}.
+     *
+     * @param seed
+     *            the seed of the random number generator
+     */
+    public SyntheticReportGenerator(final long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Writes a synthetic Checkstyle report to the specified file.
+     *
+     * @param file
+     *            the file to write
+     * @param errors
+     *            the total number of errors
+     * @param errorsPerFile
+     *            the number of errors per source file
+     * @param messageVariety
+     *            the number of distinct messages
+     * @param severityMix
+     *            the relative weights of the severities error, warning and
+     *            info, separated by colons, e.g. <code>1:4:2</code>
+     * @return the size of the report in bytes
+     * @throws IOException
+     *             if the report could not be written
+     */
+    public long write(final java.io.File file, final int errors, final int errorsPerFile, final int messageVariety,
+            final String severityMix) throws IOException {
+        int[] weights = parseWeights(severityMix);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<checkstyle version=\"8.0\">\n");
+            int fileIndex = 0;
+            for (int written = 0; written < errors; fileIndex++) {
+                writer.write(String.format("<file name=\"/synthetic/src/main/java/pkg%d/Class%d.java\">%n",
+                        fileIndex % PACKAGES, fileIndex));
+                for (int i = 0; i < errorsPerFile && written < errors; i++, written++) {
+                    writer.write(String.format(
+                            "<error line=\"%d\" column=\"%d\" severity=\"%s\" message=\"Synthetic message %d of the benchmark.\" source=\"%s\"/>%n",
+                            1 + random.nextInt(MAXIMUM_LINE), 1 + random.nextInt(MAXIMUM_COLUMN),
+                            selectSeverity(weights), random.nextInt(messageVariety),
+                            SOURCES[random.nextInt(SOURCES.length)]));
+                }
+                writer.write("</file>\n");
+            }
+            writer.write("</checkstyle>\n");
+        }
+        finally {
+            writer.close();
+        }
+        return file.length();
+    }
+
+    private int[] parseWeights(final String severityMix) {
+        String[] values = StringUtils.split(severityMix, ':');
+        if (values.length != SEVERITIES.length) {
+            throw new IllegalArgumentException("Severity mix must contain three weights: " + severityMix);
+        }
+        int[] weights = new int[SEVERITIES.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Integer.parseInt(values[i]);
+        }
+        return weights;
+    }
+
+    private String selectSeverity(final int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return SEVERITIES[i];
+            }
+        }
+        return SEVERITIES[SEVERITIES.length - 1];
+    }
+}
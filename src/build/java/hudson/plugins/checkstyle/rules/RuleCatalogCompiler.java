@@ -0,0 +1,114 @@
+package hudson.plugins.checkstyle.rules;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.SAXException;
+
+/**
+ * Compiles the DocBook files of the Checkstyle rules into the binary rule
+ * catalogs of the individual categories and verifies that the checked-in
+ * index, which maps the rule names to the categories, matches the DocBook
+ * files. Runs during the build in the phase <code>process-test-classes</code>,
+ * so that the rule descriptions do not need to be extracted from the DocBook
+ * files at runtime. The build fails if the index is out of date. This class
+ * is part of the build only and is not packaged with the plug-in.
+ *
+ * @author Ulli Hafner
+ */
+public final class RuleCatalogCompiler {
+    /**
+     * Compiles the rule catalogs.
+     *
+     * @param args
+     *            the output directory of the classes and the checked-in index
+     * @throws IOException
+     *             if a file could not be read or written
+     * @throws IllegalStateException
+     *             if the checked-in index does not match the DocBook files
+     * @throws SAXException
+     *             if a DocBook file is invalid
+     * @throws ParserConfigurationException
+     *             if the digester is not configured properly
+     */
+    public static void main(final String[] args) throws IOException, SAXException, ParserConfigurationException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException(
+                    "Usage: RuleCatalogCompiler <output directory of classes> <checked-in index>");
+        }
+        File directory = new File(args[0], CheckStyleRules.class.getPackage().getName().replace('.', '/'));
+
+        Map<String, String> index = new TreeMap<String, String>();
+        for (String category : CheckStyleRules.CATEGORIES) {
+            Map<String, Rule> rules = readDocBook(category);
+            for (String name : rules.keySet()) {
+                index.put(name, category);
+            }
+
+            OutputStream catalog = new FileOutputStream(new File(directory, RuleCatalog.getFileName(category)));
+            try {
+                RuleCatalog.write(rules.values(), catalog);
+            }
+            finally {
+                catalog.close();
+            }
+        }
+        verifyIndex(index, new File(args[1]));
+    }
+
+    private static Map<String, Rule> readDocBook(final String category)
+            throws IOException, SAXException, ParserConfigurationException {
+        InputStream inputStream = CheckStyleRules.class.getResourceAsStream(
+                CheckStyleRules.getDocBookFileName(category));
+        if (inputStream == null) {
+            throw new IOException("Missing DocBook file for category " + category);
+        }
+        try {
+            return CheckStyleRules.readDocBook(inputStream);
+        }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    private static void verifyIndex(final Map<String, String> expected, final File file) throws IOException {
+        Properties actual = new Properties();
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            actual.load(inputStream);
+        }
+        finally {
+            inputStream.close();
+        }
+
+        StringBuilder differences = new StringBuilder();
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(actual.getProperty(entry.getKey()))) {
+                differences.append("\n    expected ").append(entry.getKey()).append('=').append(entry.getValue());
+            }
+        }
+        for (String name : new TreeSet<String>(actual.stringPropertyNames())) {
+            if (!expected.containsKey(name)) {
+                differences.append("\n    unknown rule ").append(name);
+            }
+        }
+        if (differences.length() > 0) {
+            throw new IllegalStateException("The rule index " + file + " does not match the DocBook files:"
+                    + differences);
+        }
+    }
+
+    private RuleCatalogCompiler() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,80 @@
+package hudson.plugins.checkstyle;
+
+import java.awt.Color;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.labels.StandardCategoryToolTipGenerator;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.renderer.category.CategoryItemRenderer;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.util.ColorPalette;
+import hudson.util.Graph;
+
+/**
+ * Graph with the number of warnings per author and priority that is created from the {@link AuthorStore}.
+ *
+ * @author Ulli Hafner
+ */
+public class AuthorGraph extends Graph {
+    private final AuthorStore.Entry entry;
+
+    /**
+     * Creates a new instance of {@link AuthorGraph}.
+     *
+     * @param timestamp
+     *            the time of the last modification of the authors
+     * @param width
+     *            the width of the graph
+     * @param height
+     *            the height of the graph
+     * @param entry
+     *            the number of warnings per author
+     */
+    public AuthorGraph(final long timestamp, final int width, final int height, final AuthorStore.Entry entry) {
+        super(timestamp, width, height);
+
+        this.entry = entry;
+    }
+
+    @Override
+    protected JFreeChart createGraph() {
+        JFreeChart chart = ChartFactory.createStackedBarChart(null, null, null, createDataSet(),
+                PlotOrientation.VERTICAL, true, true, false);
+        chart.setBackgroundPaint(Color.white);
+
+        CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        CategoryAxis domainAxis = plot.getDomainAxis();
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_45);
+        plot.getRangeAxis().setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+
+        CategoryItemRenderer renderer = plot.getRenderer();
+        renderer.setSeriesPaint(0, ColorPalette.RED);
+        renderer.setSeriesPaint(1, ColorPalette.YELLOW);
+        renderer.setSeriesPaint(2, ColorPalette.BLUE);
+        renderer.setBaseToolTipGenerator(new StandardCategoryToolTipGenerator());
+        return chart;
+    }
+
+    private CategoryDataset createDataSet() {
+        DefaultCategoryDataset dataSet = new DefaultCategoryDataset();
+        for (String author : entry.getAuthors()) {
+            for (Priority priority : new Priority[] {Priority.HIGH, Priority.NORMAL, Priority.LOW}) {
+                dataSet.addValue(entry.getTotal(author, priority), priority.getLongLocalizedString(), author);
+            }
+        }
+        return dataSet;
+    }
+}
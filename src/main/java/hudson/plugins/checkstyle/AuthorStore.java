@@ -0,0 +1,346 @@
+package hudson.plugins.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Stores the number of Checkstyle warnings per author of the last builds of a job in a file in the root
+ * directory of the job. The file is created by the first build whose warnings have authors, i.e. for which
+ * blame has been run. Afterwards each build is added, builds without authors are added as empty entries. Only
+ * the last {@value #MAXIMUM_BUILDS} builds are kept. The latest entry of each job is cached, so the warnings by
+ * author of all jobs of a dashboard can be shown without loading any build.
+ *
+ * @author Ulli Hafner
+ */
+public final class AuthorStore {
+    /** Name of the author file in the root directory of the job. */
+    static final String FILE_NAME = "checkstyle-authors.bin";
+    /** Maximum number of builds in the file. */
+    static final int MAXIMUM_BUILDS = 100;
+
+    private static final Logger LOGGER = Logger.getLogger(AuthorStore.class.getName());
+
+    /** Marks a job without author file in the cache. */
+    private static final Entry NONE = new Entry(0, 0, new TreeMap<String, int[]>());
+    /** The latest entries of the jobs, mapped by the full name of the job. */
+    private static final ConcurrentMap<String, Entry> LATEST = new ConcurrentHashMap<String, Entry>();
+    private static volatile long lastModified = System.currentTimeMillis();
+
+    /**
+     * Appends the number of warnings per author of the specified build to the authors of its job. A build
+     * without authors is added as empty entry, so that the authors of an earlier build are no longer
+     * reported as the latest authors. If the job has no author file yet, then such a build is skipped.
+     *
+     * @param build
+     *            the build
+     * @param aggregates
+     *            the number of warnings of the build
+     */
+    public static void append(final Run<?, ?> build, final WarningAggregates aggregates) {
+        File file = getFile(build.getParent());
+        if (aggregates.getAuthors().isEmpty() && !file.exists()) {
+            return;
+        }
+        SortedMap<String, int[]> counts = new TreeMap<String, int[]>();
+        for (String author : aggregates.getAuthors()) {
+            counts.put(author, new int[] {aggregates.getTotal(author, Priority.HIGH),
+                    aggregates.getTotal(author, Priority.NORMAL), aggregates.getTotal(author, Priority.LOW)});
+        }
+        Entry entry = new Entry(build.getNumber(), build.getTimeInMillis(), counts);
+        synchronized (AuthorStore.class) {
+            SortedMap<Integer, Entry> entries = readEntries(file);
+            entries.put(entry.getBuild(), entry);
+            while (entries.size() > MAXIMUM_BUILDS) {
+                entries.remove(entries.firstKey());
+            }
+            write(file, entries.values());
+            evict(build.getParent());
+        }
+    }
+
+    /**
+     * Removes the specified build from the authors of its job.
+     *
+     * @param build
+     *            the build
+     */
+    static void remove(final Run<?, ?> build) {
+        File file = getFile(build.getParent());
+        synchronized (AuthorStore.class) {
+            SortedMap<Integer, Entry> entries = readEntries(file);
+            if (entries.remove(build.getNumber()) != null) {
+                write(file, entries.values());
+                evict(build.getParent());
+            }
+        }
+    }
+
+    private static void evict(final Job<?, ?> job) {
+        LATEST.remove(job.getFullName());
+        lastModified = System.currentTimeMillis();
+    }
+
+    /**
+     * Evicts the cached entries of the specified job and of the jobs that are nested in the specified item.
+     *
+     * @param fullName
+     *            the full name of the job or folder
+     */
+    static void evict(final String fullName) {
+        CheckStyleIndex.removeItem(LATEST, fullName);
+        lastModified = System.currentTimeMillis();
+    }
+
+    private static void write(final File file, final Collection<Entry> entries) {
+        File temporaryFile = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temporaryFile)));
+            try {
+                for (Entry entry : entries) {
+                    entry.write(output);
+                }
+            }
+            finally {
+                IOUtils.closeQuietly(output);
+            }
+            FileUtils.deleteQuietly(file);
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Can't rename " + temporaryFile + " to " + file);
+            }
+        }
+        catch (IOException exception) {
+            FileUtils.deleteQuietly(temporaryFile);
+            LOGGER.log(Level.WARNING, "Can't write the Checkstyle authors " + file, exception);
+        }
+    }
+
+    /**
+     * Returns the number of warnings per author of the last builds of the specified job.
+     *
+     * @param job
+     *            the job
+     * @return the entries, ordered by build number, or an empty list if there is no author file
+     */
+    public static List<Entry> read(final Job<?, ?> job) {
+        return new ArrayList<Entry>(readEntries(getFile(job)).values());
+    }
+
+    /**
+     * Returns the number of warnings per author of the latest build of the specified job.
+     *
+     * @param job
+     *            the job
+     * @return the latest entry, or <code>null</code> if there is no author file
+     */
+    public static Entry getLatest(final Job<?, ?> job) {
+        Entry latest = LATEST.get(job.getFullName());
+        if (latest == null) {
+            SortedMap<Integer, Entry> entries = readEntries(getFile(job));
+            latest = entries.isEmpty() ? NONE : entries.get(entries.lastKey());
+            LATEST.put(job.getFullName(), latest);
+        }
+        return latest == NONE ? null : latest;
+    }
+
+    /**
+     * Returns the sum of the number of warnings per author of the latest builds of the specified jobs.
+     *
+     * @param jobs
+     *            the jobs
+     * @param days
+     *            the number of days to consider: jobs without build in this period are skipped, 0 considers
+     *            all jobs
+     * @return the sum of the number of warnings per author
+     */
+    public static Entry getTotals(final Collection<? extends Job<?, ?>> jobs, final int days) {
+        long now = System.currentTimeMillis();
+        long start = days > 0 ? now - TimeUnit.DAYS.toMillis(days) : 0;
+        SortedMap<String, int[]> totals = new TreeMap<String, int[]>();
+        for (Job<?, ?> job : jobs) {
+            Entry latest = getLatest(job);
+            if (latest != null && latest.getTimestamp() >= start) {
+                for (Map.Entry<String, int[]> counts : latest.counts.entrySet()) {
+                    int[] total = totals.get(counts.getKey());
+                    if (total == null) {
+                        total = new int[3];
+                        totals.put(counts.getKey(), total);
+                    }
+                    for (int i = 0; i < total.length; i++) {
+                        total[i] += counts.getValue()[i];
+                    }
+                }
+            }
+        }
+        return new Entry(0, now, totals);
+    }
+
+    /**
+     * Returns the time of the last modification of any author file.
+     *
+     * @return the time in milliseconds
+     */
+    public static long getLastModified() {
+        return lastModified;
+    }
+
+    private static SortedMap<Integer, Entry> readEntries(final File file) {
+        SortedMap<Integer, Entry> entries = new TreeMap<Integer, Entry>();
+        if (!file.exists()) {
+            return entries;
+        }
+        synchronized (AuthorStore.class) {
+            DataInputStream input = null;
+            try {
+                input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                while (true) {
+                    Entry entry = Entry.read(input);
+                    entries.put(entry.getBuild(), entry);
+                }
+            }
+            catch (EOFException exception) {
+                // all records read, an incomplete last record is skipped
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the Checkstyle authors " + file, exception);
+            }
+            finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+        return entries;
+    }
+
+    private static File getFile(final Job<?, ?> job) {
+        return new File(job.getRootDir(), FILE_NAME);
+    }
+
+    private AuthorStore() {
+        // prevents instantiation
+    }
+
+    /**
+     * The number of warnings per author of a single build.
+     */
+    public static final class Entry {
+        private final int build;
+        private final long timestamp;
+        /** The number of warnings per author and priority (high, normal, low). */
+        private final SortedMap<String, int[]> counts;
+
+        Entry(final int build, final long timestamp, final SortedMap<String, int[]> counts) {
+            this.build = build;
+            this.timestamp = timestamp;
+            this.counts = counts;
+        }
+
+        static Entry read(final DataInputStream input) throws IOException {
+            int build = input.readInt();
+            long timestamp = input.readLong();
+            int size = input.readInt();
+            SortedMap<String, int[]> counts = new TreeMap<String, int[]>();
+            for (int i = 0; i < size; i++) {
+                counts.put(input.readUTF(), new int[] {input.readInt(), input.readInt(), input.readInt()});
+            }
+            return new Entry(build, timestamp, counts);
+        }
+
+        void write(final DataOutputStream output) throws IOException {
+            output.writeInt(build);
+            output.writeLong(timestamp);
+            output.writeInt(counts.size());
+            for (Map.Entry<String, int[]> count : counts.entrySet()) {
+                output.writeUTF(count.getKey());
+                for (int value : count.getValue()) {
+                    output.writeInt(value);
+                }
+            }
+        }
+
+        /**
+         * Returns the build number.
+         *
+         * @return the build number
+         */
+        public int getBuild() {
+            return build;
+        }
+
+        /**
+         * Returns the time when the build has been started.
+         *
+         * @return the timestamp in milliseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the authors of the warnings.
+         *
+         * @return the authors, ordered by name
+         */
+        public Set<String> getAuthors() {
+            return Collections.unmodifiableSet(counts.keySet());
+        }
+
+        /**
+         * Returns the number of warnings of the specified author with the specified priority.
+         *
+         * @param author
+         *            the name of the author
+         * @param priority
+         *            the priority
+         * @return the number of warnings
+         */
+        public int getTotal(final String author, final Priority priority) {
+            int[] count = counts.get(author);
+            if (count == null) {
+                return 0;
+            }
+            return count[WarningAggregates.getIndex(priority)];
+        }
+    }
+
+    /**
+     * Removes deleted builds from the authors of their job.
+     */
+    @Extension
+    public static class DeletionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            if (getFile(run.getParent()).exists()) {
+                remove(run);
+            }
+        }
+    }
+}
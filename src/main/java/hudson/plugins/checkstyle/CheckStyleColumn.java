@@ -4,12 +4,16 @@ import org.kohsuke.stapler.DataBoundConstructor;
 
 import hudson.Extension;
 
+import hudson.model.Job;
+import hudson.model.Run;
 import hudson.plugins.analysis.views.WarningsCountColumn;
 
 import hudson.views.ListViewColumnDescriptor;
 
 /**
- * A column that shows the total number of Checkstyle warnings in a job.
+ * A column that shows the total number of Checkstyle warnings in a job. The number is read from the cached
+ * totals of the last completed build in the {@link TrendStore} of the job, so the warnings of the build are
+ * not loaded. Jobs without trend store are shown using the results of their builds.
  *
  * @author Ulli Hafner
  */
@@ -27,6 +31,29 @@ public class CheckStyleColumn extends WarningsCountColumn<CheckStyleProjectActio
         return CheckStyleProjectAction.class;
     }
 
+    /**
+     * Returns the totals of the last completed build of the specified job that has a Checkstyle result. The
+     * builds are recorded in the {@link TrendStore} when they complete, so running builds and the intermediate
+     * results of Maven builds are never shown. While the latest record belongs to a build that is just
+     * completing, the column falls back to the results of the builds.
+     *
+     * @param job
+     *            the job
+     * @return the totals, or <code>null</code> if the job has no trend store or if the latest record does
+     *         not belong to a completed build
+     */
+    public TrendStore.Entry getCachedTotals(final Job<?, ?> job) {
+        TrendStore.Entry latest = TrendStore.getLatest(job);
+        if (latest == null) {
+            return null;
+        }
+        Run<?, ?> lastCompletedBuild = job.getLastCompletedBuild();
+        if (lastCompletedBuild == null || latest.getBuild() > lastCompletedBuild.getNumber()) {
+            return null;
+        }
+        return latest;
+    }
+
     @Override
     public String getColumnCaption() {
         return Messages.Checkstyle_Warnings_ColumnHeader();
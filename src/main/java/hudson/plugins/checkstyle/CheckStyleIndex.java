@@ -0,0 +1,369 @@
+package hudson.plugins.checkstyle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Index of the Checkstyle totals of all jobs. For each job the index contains the totals of the latest build
+ * and a history with the totals of the last build of each day. The index is built from the {@link TrendStore}
+ * of a job when the job is queried for the first time and is updated by the {@link TrendStore} when a build of
+ * the job completes or is deleted. The history of a job is evicted when the job is deleted, renamed or moved.
+ * The dashboard portlets query this index, so that the builds of the jobs on a dashboard do not need to be
+ * loaded.
+ *
+ * @author Ulli Hafner
+ */
+public final class CheckStyleIndex {
+    /** Maximum number of days in the history of a job. */
+    private static final int MAXIMUM_DAYS = 365;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /** Singleton instance. */
+    private static final CheckStyleIndex INSTANCE = new CheckStyleIndex();
+
+    /** The histories of the jobs, mapped by the full name of the job. */
+    private final ConcurrentMap<String, History> histories = new ConcurrentHashMap<String, History>();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static CheckStyleIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private CheckStyleIndex() {
+        // prevents instantiation
+    }
+
+    /**
+     * Rebuilds the history of the specified job from its {@link TrendStore}.
+     *
+     * @param job
+     *            the job
+     */
+    public void update(final Job<?, ?> job) {
+        histories.put(job.getFullName(), new History(TrendStore.read(job)));
+        lastModified = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the totals of a new build to the history of the specified job. The trend of the job is read again
+     * only if the build replaces the latest build of the history. If the history is changed concurrently, then
+     * the build is added to the changed history.
+     *
+     * @param job
+     *            the job
+     * @param entry
+     *            the totals of the new build
+     */
+    public void add(final Job<?, ?> job, final TrendStore.Entry entry) {
+        String name = job.getFullName();
+        for (History history = histories.get(name); history != null; history = histories.get(name)) {
+            if (history.latest != null && history.latest.getBuild() >= entry.getBuild()) {
+                update(job);
+                return;
+            }
+            if (histories.replace(name, history, history.add(entry))) {
+                lastModified = System.currentTimeMillis();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the value of the specified item and the values of the items that are nested in the specified
+     * item from a map that is keyed by the full names of the items.
+     *
+     * @param values
+     *            the values, mapped by the full name of the item
+     * @param fullName
+     *            the full name of the item
+     */
+    static void removeItem(final Map<String, ?> values, final String fullName) {
+        values.remove(fullName);
+        String prefix = fullName + '/';
+        for (Iterator<String> names = values.keySet().iterator(); names.hasNext();) {
+            if (names.next().startsWith(prefix)) {
+                names.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the time of the last update of the index.
+     *
+     * @return the time in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private History getHistory(final Job<?, ?> job) {
+        History history = histories.get(job.getFullName());
+        if (history == null) {
+            TrendStore.migrate(job);
+            history = new History(TrendStore.read(job));
+            History existing = histories.putIfAbsent(job.getFullName(), history);
+            if (existing != null) {
+                history = existing;
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Returns the totals of the latest build of the specified job.
+     *
+     * @param job
+     *            the job
+     * @return the totals, or <code>null</code> if the job has no Checkstyle results
+     */
+    public TrendStore.Entry getTotals(final Job<?, ?> job) {
+        return getHistory(job).latest;
+    }
+
+    /**
+     * Returns the sum of the totals of the latest builds of the specified jobs.
+     *
+     * @param jobs
+     *            the jobs
+     * @return the sum of the totals
+     */
+    public TrendStore.Entry getTotals(final Collection<? extends Job<?, ?>> jobs) {
+        Sum sum = new Sum();
+        for (Job<?, ?> job : jobs) {
+            sum.add(getTotals(job));
+        }
+        return sum.toEntry(0, 0);
+    }
+
+    /**
+     * Returns the daily totals of the specified jobs. The totals of a day are the sum of the totals of the last
+     * build of each job until the end of the day, the new and fixed warnings are the sum of all builds of the
+     * day.
+     *
+     * @param jobs
+     *            the jobs
+     * @param days
+     *            the number of calendar days to return, including today, 0 returns the whole history
+     * @return the daily totals, ordered by day
+     */
+    public List<TrendStore.Entry> getHistory(final Collection<? extends Job<?, ?>> jobs, final int days) {
+        return getHistory(jobs, days, System.currentTimeMillis());
+    }
+
+    List<TrendStore.Entry> getHistory(final Collection<? extends Job<?, ?>> jobs, final int days, final long now) {
+        List<SortedMap<Long, TrendStore.Entry>> jobHistories = new ArrayList<SortedMap<Long, TrendStore.Entry>>();
+        SortedMap<Long, Sum> sums = new TreeMap<Long, Sum>();
+        for (Job<?, ?> job : jobs) {
+            SortedMap<Long, TrendStore.Entry> jobDays = getHistory(job).days;
+            if (!jobDays.isEmpty()) {
+                jobHistories.add(jobDays);
+                for (Long day : jobDays.keySet()) {
+                    sums.put(day, new Sum());
+                }
+            }
+        }
+        if (days > 0) {
+            sums = sums.tailMap(getDay(now - (days - 1) * DAY));
+        }
+        for (SortedMap<Long, TrendStore.Entry> history : jobHistories) {
+            TrendStore.Entry previous = null;
+            if (!sums.isEmpty()) {
+                SortedMap<Long, TrendStore.Entry> before = history.headMap(sums.firstKey());
+                if (!before.isEmpty()) {
+                    previous = before.get(before.lastKey());
+                }
+            }
+            for (Map.Entry<Long, Sum> sum : sums.entrySet()) {
+                TrendStore.Entry entry = history.get(sum.getKey());
+                if (entry == null) {
+                    sum.getValue().addTotals(previous);
+                }
+                else {
+                    sum.getValue().add(entry);
+                    previous = entry;
+                }
+            }
+        }
+
+        List<TrendStore.Entry> entries = new ArrayList<TrendStore.Entry>();
+        for (Map.Entry<Long, Sum> sum : sums.entrySet()) {
+            entries.add(sum.getValue().toEntry(0, sum.getKey()));
+        }
+        return entries;
+    }
+
+    /**
+     * Creates a trend graph with the daily totals of the specified jobs.
+     *
+     * @param jobs
+     *            the jobs
+     * @param type
+     *            the type of the graph
+     * @param days
+     *            the number of days to show, 0 shows the whole history
+     * @param width
+     *            the width of the graph
+     * @param height
+     *            the height of the graph
+     * @return the graph
+     */
+    public TrendGraph createGraph(final Collection<? extends Job<?, ?>> jobs, final TrendGraph.Type type,
+            final int days, final int width, final int height) {
+        return new TrendGraph(lastModified, width, height, getHistory(jobs, days), type, null);
+    }
+
+    /**
+     * Returns the start of the day of the specified time in the default time zone.
+     *
+     * @param timestamp
+     *            the time in milliseconds
+     * @return the start of the day in milliseconds
+     */
+    static long getDay(final long timestamp) {
+        long offset = TimeZone.getDefault().getOffset(timestamp);
+        return (timestamp + offset) / DAY * DAY - offset;
+    }
+
+    /**
+     * The totals of the latest build of a job and the totals of the last build of each day.
+     */
+    private static final class History {
+        private final TrendStore.Entry latest;
+        private final SortedMap<Long, TrendStore.Entry> days = new TreeMap<Long, TrendStore.Entry>();
+
+        History(final TrendStore.Entry latest, final SortedMap<Long, TrendStore.Entry> days) {
+            this.latest = latest;
+            this.days.putAll(days);
+        }
+
+        History(final List<TrendStore.Entry> entries) {
+            SortedMap<Long, Sum> sums = new TreeMap<Long, Sum>();
+            for (TrendStore.Entry entry : entries) {
+                Long day = getDay(entry.getTimestamp());
+                Sum sum = sums.get(day);
+                if (sum == null) {
+                    sum = new Sum();
+                    sums.put(day, sum);
+                }
+                sum.addChanges(entry);
+                sum.setTotals(entry);
+            }
+            while (sums.size() > MAXIMUM_DAYS) {
+                sums.remove(sums.firstKey());
+            }
+            for (Map.Entry<Long, Sum> sum : sums.entrySet()) {
+                days.put(sum.getKey(), sum.getValue().toEntry(0, sum.getKey()));
+            }
+            latest = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+        }
+
+        /**
+         * Returns a copy of this history with the totals of the specified new build.
+         *
+         * @param entry
+         *            the totals of the new build
+         * @return the new history
+         */
+        History add(final TrendStore.Entry entry) {
+            Long day = getDay(entry.getTimestamp());
+            Sum sum = new Sum();
+            sum.addChanges(days.get(day));
+            sum.addChanges(entry);
+            sum.setTotals(entry);
+
+            History history = new History(entry, days);
+            history.days.put(day, sum.toEntry(0, day));
+            while (history.days.size() > MAXIMUM_DAYS) {
+                history.days.remove(history.days.firstKey());
+            }
+            return history;
+        }
+    }
+
+    /**
+     * Evicts the cached values of a job from the index, the {@link TrendStore}, the {@link AuthorStore} and the
+     * {@link TrendGraphCache} when the job is deleted, renamed or moved. All of them are mapped by the full name
+     * of the job, so a job that gets the name of a deleted job must not see the values of the deleted job.
+     */
+    @Extension
+    public static class EvictionListener extends ItemListener {
+        @Override
+        public void onDeleted(final Item item) {
+            evict(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+            evict(oldFullName);
+        }
+
+        private void evict(final String fullName) {
+            CheckStyleIndex index = getInstance();
+            removeItem(index.histories, fullName);
+            index.lastModified = System.currentTimeMillis();
+            TrendStore.evict(fullName);
+            AuthorStore.evict(fullName);
+            TrendGraphCache.evict(fullName);
+        }
+    }
+
+    /**
+     * Sums up the totals of several entries.
+     */
+    private static final class Sum {
+        private int high;
+        private int normal;
+        private int low;
+        private int newWarnings;
+        private int fixedWarnings;
+
+        void add(final TrendStore.Entry entry) {
+            addTotals(entry);
+            addChanges(entry);
+        }
+
+        void addTotals(final TrendStore.Entry entry) {
+            if (entry != null) {
+                high += entry.getHigh();
+                normal += entry.getNormal();
+                low += entry.getLow();
+            }
+        }
+
+        void addChanges(final TrendStore.Entry entry) {
+            if (entry != null) {
+                newWarnings += entry.getNewWarnings();
+                fixedWarnings += entry.getFixedWarnings();
+            }
+        }
+
+        void setTotals(final TrendStore.Entry entry) {
+            high = entry.getHigh();
+            normal = entry.getNormal();
+            low = entry.getLow();
+        }
+
+        TrendStore.Entry toEntry(final int build, final long timestamp) {
+            return new TrendStore.Entry(build, timestamp, high, normal, low, newWarnings, fixedWarnings);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import hudson.model.Action;
 import hudson.plugins.analysis.core.HealthDescriptor;
 import hudson.plugins.analysis.core.MavenResultAction;
 import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.util.model.Priority;
 
 /**
  * A {@link CheckStyleResultAction} for native Maven jobs. This action
@@ -58,10 +59,20 @@ public class CheckStyleMavenResultAction extends MavenResultAction<CheckStyleRes
 
     @Override
     protected CheckStyleResult createResult(final CheckStyleResult existingResult, final CheckStyleResult additionalResult) {
-        return new CheckStyleReporterResult(getOwner(), additionalResult.getDefaultEncoding(),
+        CheckStyleResult result = new CheckStyleReporterResult(getOwner(), additionalResult.getDefaultEncoding(),
                 aggregate(existingResult, additionalResult),
                 existingResult.usePreviousBuildAsStable(),
                 existingResult.useOnlyStableBuildsAsReference());
+        if (existingResult.isTruncated() || additionalResult.isTruncated()) {
+            result.setCountedWarnings(
+                    existingResult.getNumberOfCountedWarnings(Priority.HIGH)
+                            + additionalResult.getNumberOfCountedWarnings(Priority.HIGH),
+                    existingResult.getNumberOfCountedWarnings(Priority.NORMAL)
+                            + additionalResult.getNumberOfCountedWarnings(Priority.NORMAL),
+                    existingResult.getNumberOfCountedWarnings(Priority.LOW)
+                            + additionalResult.getNumberOfCountedWarnings(Priority.LOW));
+        }
+        return result;
     }
 }
 
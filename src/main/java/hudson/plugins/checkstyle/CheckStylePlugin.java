@@ -1,16 +1,59 @@
 package hudson.plugins.checkstyle;
 
+import java.io.IOException;
+
+import jenkins.util.Timer;
+
 import hudson.Plugin;
 import hudson.plugins.checkstyle.rules.CheckStyleRules;
 
 /**
- * Initializes the Checkstyle messages and descriptions.
+ * Initializes the Checkstyle messages and descriptions. The descriptions are read on a background thread so
+ * that the startup of Jenkins does not wait for the rules. Stores the memory budget of the
+ * {@link WarningsCache}.
  *
  * @author Ulli Hafner
  */
 public class CheckStylePlugin extends Plugin {
+    /** Memory budget of the warnings cache in MB. */
+    private Integer cacheBudget; // NOPMD: not available in old configurations
+
     @Override
-    public void start() {
-        CheckStyleRules.getInstance().initialize();
+    public void start() throws IOException {
+        load();
+        WarningsCache.getInstance().setBudget(getCacheBudget());
+
+        Timer.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                CheckStyleRules.getInstance().initialize();
+            }
+        });
+    }
+
+    /**
+     * Returns the memory budget of the warnings cache.
+     *
+     * @return the budget in MB
+     */
+    public int getCacheBudget() {
+        if (cacheBudget == null) {
+            return WarningsCache.DEFAULT_BUDGET;
+        }
+        return cacheBudget;
+    }
+
+    /**
+     * Sets the memory budget of the warnings cache and persists it.
+     *
+     * @param cacheBudget
+     *            the budget in MB, 0 disables the cache
+     * @throws IOException
+     *             if the configuration could not be saved
+     */
+    public void setCacheBudget(final int cacheBudget) throws IOException {
+        this.cacheBudget = Math.max(cacheBudget, 0);
+        WarningsCache.getInstance().setBudget(this.cacheBudget);
+        save();
     }
 }
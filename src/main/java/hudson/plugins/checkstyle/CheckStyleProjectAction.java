@@ -1,16 +1,24 @@
 package hudson.plugins.checkstyle;
 
+import org.kohsuke.stapler.StaplerRequest;
+
 import hudson.model.Job;
 import hudson.plugins.analysis.core.AbstractProjectAction;
 import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.graph.GraphConfigurationView;
 
 /**
  * Entry point to visualize the Checkstyle trend graph in the project screen.
- * Drawing of the graph is delegated to the associated {@link ResultAction}.
+ * Drawing of the graph is delegated to the associated {@link ResultAction}. If
+ * the job has a {@link TrendStore} and the configured graph is available in
+ * the store, then the trend graph of the project screen is created from the
+ * store.
  *
  * @author Ulli Hafner
  */
 public class CheckStyleProjectAction extends AbstractProjectAction<ResultAction<CheckStyleResult>> {
+    private static final int ENLARGE_FACTOR = 2;
+
     /**
      * Instantiates a new {@link CheckStyleProjectAction}.
      *
@@ -34,5 +42,58 @@ public class CheckStyleProjectAction extends AbstractProjectAction<ResultAction<
         super(job, type, Messages._Checkstyle_ProjectAction_Name(), Messages._Checkstyle_Trend_Name(),
                 CheckStyleDescriptor.PLUGIN_ID, CheckStyleDescriptor.ICON_URL, CheckStyleDescriptor.RESULT_URL);
     }
-}
 
+    /**
+     * Returns whether the trend graph can be created from the {@link TrendStore} of the job.
+     *
+     * @return <code>true</code> if the job has a trend store, <code>false</code> otherwise
+     */
+    public boolean hasTrendStore() {
+        return TrendStore.exists(getJob());
+    }
+
+    /**
+     * Returns whether the trend graph of the project screen is created from the {@link TrendStore} of the
+     * job. This is the case if the job has a trend store and the graph configuration of the user selects a
+     * visible graph with one value per build that is available in the store. Otherwise, the trend graph of
+     * the result actions is shown.
+     *
+     * @param request
+     *            Stapler request
+     * @return <code>true</code> if the trend graph is created from the trend store
+     */
+    public boolean isTrendStoreGraphVisible(final StaplerRequest request) {
+        if (!hasTrendStore()) {
+            return false;
+        }
+        GraphConfigurationView configuration = createUserConfiguration(request);
+        return configuration.isVisible() && getTrendType(configuration) != null
+                && !configuration.useBuildDateAsDomain() && configuration.getDayCount() == 0;
+    }
+
+    /**
+     * Returns the trend graph that is created from the {@link TrendStore} of the job. The type, the size and
+     * the number of builds are taken from the graph configuration of the user. If the request parameter
+     * <code>enlarge</code> is set, then the graph is rendered with twice the configured size. The graph is
+     * rendered only once per locale until the next build of the job completes.
+     *
+     * @param request
+     *            Stapler request
+     * @return the trend graph
+     */
+    public TrendGraphCache.CachedGraph getTrendStoreGraph(final StaplerRequest request) {
+        GraphConfigurationView configuration = createUserConfiguration(request);
+        TrendGraph.Type type = getTrendType(configuration);
+        if (type == null) {
+            type = TrendGraph.Type.PRIORITY;
+        }
+        int factor = request.getParameter("enlarge") == null ? 1 : ENLARGE_FACTOR;
+
+        return TrendGraphCache.getGraph(getJob(), type, configuration.getWidth() * factor,
+                configuration.getHeight() * factor, configuration.getBuildCount(), request.getLocale());
+    }
+
+    private TrendGraph.Type getTrendType(final GraphConfigurationView configuration) {
+        return TrendGraph.Type.fromGraphId(configuration.getGraphType().getId());
+    }
+}
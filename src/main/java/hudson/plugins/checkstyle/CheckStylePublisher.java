@@ -1,6 +1,12 @@
 package hudson.plugins.checkstyle;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -14,14 +20,21 @@ import hudson.Launcher;
 import hudson.matrix.MatrixAggregator;
 import hudson.matrix.MatrixBuild;
 import hudson.model.BuildListener;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.analysis.core.BuildResult;
-import hudson.plugins.analysis.core.FilesParser;
 import hudson.plugins.analysis.core.HealthAwarePublisher;
 import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.util.PluginLogger;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.checkstyle.parser.CheckStyleFilesParser;
 import hudson.plugins.checkstyle.parser.CheckStyleParser;
+import hudson.plugins.checkstyle.parser.FailFastGate;
+import hudson.plugins.checkstyle.parser.PackageNameCache;
+import hudson.plugins.checkstyle.parser.ParsedReports;
+import hudson.plugins.checkstyle.parser.ReportDigest;
+import hudson.plugins.checkstyle.parser.StringPool;
 
 /**
  * Publishes the results of the Checkstyle analysis (freestyle project type).
@@ -35,9 +48,15 @@ public class CheckStylePublisher extends HealthAwarePublisher {
     private static final String PLUGIN_NAME = "CHECKSTYLE";
 
     /** Default Checkstyle pattern. */
-    private static final String DEFAULT_PATTERN = "**/checkstyle-result.xml";
+    private static final String DEFAULT_PATTERN = "**/checkstyle-result.xml, **/checkstyle-result.xml.gz";
     /** Ant file-set pattern of files to work with. */
     private String pattern;
+    /** Determines whether to read the Checkstyle files with the StAX streaming parser. */
+    private boolean useStreamingParser;
+    /** The maximum number of report files that are parsed concurrently. */
+    private int parallelism;
+    /** Determines whether to stop the detailed processing as soon as a failed threshold is exceeded. */
+    private boolean failFast;
 
     /**
      * Constructor used from methods like {@link StaplerRequest#bindJSON(Class, JSONObject)} and
@@ -65,28 +84,146 @@ public class CheckStylePublisher extends HealthAwarePublisher {
         this.pattern = pattern;
     }
 
+    /**
+     * Returns whether the Checkstyle files should be read with the StAX streaming parser.
+     *
+     * @return <code>true</code> if the warnings should be created while reading the files,
+     *         <code>false</code> if the whole document tree should be built first
+     */
+    public boolean getUseStreamingParser() {
+        return useStreamingParser;
+    }
+
+    /**
+     * Sets whether the Checkstyle files should be read with the StAX streaming parser.
+     *
+     * @param useStreamingParser
+     *            <code>true</code> to create the warnings while reading the files
+     */
+    @DataBoundSetter
+    public void setUseStreamingParser(final boolean useStreamingParser) {
+        this.useStreamingParser = useStreamingParser;
+    }
+
+    /**
+     * Returns the maximum number of report files that are parsed concurrently.
+     *
+     * @return the degree of parallelism, a value less than 2 means that the files are parsed sequentially
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of report files that are parsed concurrently.
+     *
+     * @param parallelism
+     *            the degree of parallelism, a value less than 2 means that the files are parsed sequentially
+     */
+    @DataBoundSetter
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns whether the detailed processing of the warnings should be
+     * stopped as soon as a threshold for the total number of warnings that
+     * lets the build fail is exceeded.
+     *
+     * @return <code>true</code> if only a sample of the warnings should be
+     *         kept for failing builds, <code>false</code> otherwise
+     */
+    public boolean getFailFast() {
+        return failFast;
+    }
+
+    /**
+     * Sets whether the detailed processing of the warnings should be stopped
+     * as soon as a threshold for the total number of warnings that lets the
+     * build fail is exceeded.
+     *
+     * @param failFast
+     *            <code>true</code> to keep only a sample of the warnings for failing builds
+     */
+    @DataBoundSetter
+    public void setFailFast(final boolean failFast) {
+        this.failFast = failFast;
+    }
+
     @Override
     public BuildResult perform(final Run<?, ?> build, final FilePath workspace, final PluginLogger logger) throws
             InterruptedException, IOException {
         logger.log("Collecting checkstyle analysis files...");
 
-        FilesParser parser = new FilesParser(PLUGIN_NAME,
+        File jobDirectory = build.getParent().getRootDir();
+        CheckStyleResult previous = getPreviousResult(build);
+        Map<String, ReportDigest> previousDigests = previous == null
+                ? Collections.<String, ReportDigest>emptyMap() : previous.getReportDigests();
+        CheckStyleFilesParser parser = new CheckStyleFilesParser(PLUGIN_NAME,
                 StringUtils.defaultIfEmpty(expandFilePattern(getPattern(), build.getEnvironment(TaskListener.NULL)), DEFAULT_PATTERN),
-                new CheckStyleParser(getDefaultEncoding()),
-                shouldDetectModules(), isMavenBuild(build));
+                new CheckStyleParser(getDefaultEncoding(), getUseStreamingParser(), PackageNameCache.load(jobDirectory),
+                        getFailFast() ? new FailFastGate(getThresholds()) : new FailFastGate()),
+                shouldDetectModules(), isMavenBuild(build), getParallelism(), previousDigests);
 
-        ParserResult project = workspace.act(parser);
+        ParsedReports reports = workspace.act(parser);
+        ParserResult project = reports.getResult();
         logger.logLines(project.getLogMessages());
+        Collection<FileAnnotation> parsedAnnotations = new ArrayList<FileAnnotation>(project.getAnnotations());
 
-        blame(project.getAnnotations(), build, workspace);
+        PackageNameCache packageNames = reports.getPackageNames();
+        packageNames.save(jobDirectory);
+        logger.log(String.format("Package names of %d source files read from cache, %d source files scanned",
+                packageNames.getHits(), packageNames.getMisses()));
+        logger.log(String.format("Shared strings of %d warnings save about %d KB of memory",
+                project.getNumberOfAnnotations(), StringPool.estimateSavedBytes(project.getAnnotations()) / 1024));
+
+        FailFastGate failFastGate = reports.getFailFastGate();
+        if (failFastGate.isTriggered()) {
+            logger.log(failFastGate.getSummary());
+            build.setResult(Result.FAILURE);
+
+            CheckStyleResult result = new CheckStyleResult(build, getDefaultEncoding(), project,
+                    usePreviousBuildAsReference(), useOnlyStableBuildsAsReference(), failFastGate);
+            build.addAction(new CheckStyleResultAction(build, this, result));
+
+            return result;
+        }
+
+        Set<String> skippedReports = reports.getSkippedReports();
+        if (previous != null && !skippedReports.isEmpty()) {
+            project.addAnnotations(previous.copyAnnotationsOfReports(skippedReports, reports.getReportNames()));
+            logger.log(String.format("Skipped %d unchanged reports, reused warnings of build %s (saved about %d ms)",
+                    skippedReports.size(), previous.getOwner().getDisplayName(), reports.getSavedTime()));
+        }
+
+        blame(parsedAnnotations, build, workspace);
 
         CheckStyleResult result = new CheckStyleResult(build, getDefaultEncoding(), project,
                 usePreviousBuildAsReference(), useOnlyStableBuildsAsReference());
+        result.setReportNames(reports.getReportNames());
+        result.setReportDigests(reports.getDigests());
         build.addAction(new CheckStyleResultAction(build, this, result));
 
         return result;
     }
 
+    /**
+     * Returns the result of the last previous build that has Checkstyle results.
+     *
+     * @param build
+     *            the current build
+     * @return the previous result or <code>null</code> if there is no such build
+     */
+    private CheckStyleResult getPreviousResult(final Run<?, ?> build) {
+        for (Run<?, ?> run = build.getPreviousBuild(); run != null; run = run.getPreviousBuild()) {
+            CheckStyleResultAction action = run.getAction(CheckStyleResultAction.class);
+            if (action != null) {
+                return action.getResult();
+            }
+        }
+        return null;
+    }
+
     @Override
     public CheckStyleDescriptor getDescriptor() {
         return (CheckStyleDescriptor)super.getDescriptor();
@@ -8,6 +8,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.configurator.ComponentConfigurationException;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import hudson.FilePath;
 import hudson.maven.MavenAggregatedReport;
@@ -16,11 +17,15 @@ import hudson.maven.MojoInfo;
 import hudson.maven.MavenBuild;
 import hudson.maven.MavenModule;
 
-import hudson.plugins.analysis.core.FilesParser;
+import hudson.model.Result;
 import hudson.plugins.analysis.core.HealthAwareReporter;
 import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.checkstyle.parser.CheckStyleParser;
+import hudson.plugins.checkstyle.parser.FailFastGate;
+import hudson.plugins.checkstyle.parser.PackageNameCache;
+import hudson.plugins.checkstyle.parser.ParsedReports;
+import hudson.plugins.checkstyle.parser.SingleReportParser;
 
 import hudson.remoting.VirtualChannel;
 
@@ -38,6 +43,14 @@ public class CheckStyleReporter extends HealthAwareReporter<CheckStyleResult> {
     /** Default Checkstyle pattern. */
     private static final String CHECKSTYLE_XML_FILE = "checkstyle-result.xml";
 
+    /** Determines whether to stop the detailed processing as soon as a failed threshold is exceeded. */
+    private boolean failFast;
+    /**
+     * The fail-fast gate of the last report, if it has been triggered. The gate is transferred with this
+     * reporter from {@link #perform} in the Maven process to {@link #createResult} on the controller.
+     */
+    private FailFastGate triggeredGate; // NOPMD: transferred with the build callable
+
     /**
      * Creates a new instance of <code>CheckStyleReporter</code>.
      *
@@ -115,6 +128,31 @@ public class CheckStyleReporter extends HealthAwareReporter<CheckStyleResult> {
     }
     // CHECKSTYLE:ON
 
+    /**
+     * Returns whether the detailed processing of the warnings should be
+     * stopped as soon as a threshold for the total number of warnings that
+     * lets the build fail is exceeded.
+     *
+     * @return <code>true</code> if only a sample of the warnings should be
+     *         kept for failing builds, <code>false</code> otherwise
+     */
+    public boolean getFailFast() {
+        return failFast;
+    }
+
+    /**
+     * Sets whether the detailed processing of the warnings should be stopped
+     * as soon as a threshold for the total number of warnings that lets the
+     * build fail is exceeded.
+     *
+     * @param failFast
+     *            <code>true</code> to keep only a sample of the warnings for failing builds
+     */
+    @DataBoundSetter
+    public void setFailFast(final boolean failFast) {
+        this.failFast = failFast;
+    }
+
     @Override
     protected boolean acceptGoal(final String goal) {
         return "checkstyle".equals(goal) || "check".equals(goal) || "site".equals(goal);
@@ -123,10 +161,21 @@ public class CheckStyleReporter extends HealthAwareReporter<CheckStyleResult> {
     @Override
     public ParserResult perform(final MavenBuildProxy build, final MavenProject pom,
             final MojoInfo mojo, final PluginLogger logger) throws InterruptedException, IOException {
-        FilesParser checkstyleCollector = new FilesParser(PLUGIN_NAME,
-                new CheckStyleParser(getDefaultEncoding()), getModuleName(pom));
-
-        return getFileName(mojo, pom).act(checkstyleCollector);
+        CheckStyleParser parser = new CheckStyleParser(getDefaultEncoding(), false, new PackageNameCache(),
+                getFailFast() ? new FailFastGate(getThresholds()) : new FailFastGate());
+        SingleReportParser checkstyleCollector = new SingleReportParser(PLUGIN_NAME, parser, getModuleName(pom));
+
+        ParsedReports reports = getFileName(mojo, pom).act(checkstyleCollector);
+        FailFastGate failFastGate = reports.getFailFastGate();
+        if (failFastGate.isTriggered()) {
+            logger.log(failFastGate.getSummary());
+            build.setResult(Result.FAILURE);
+            triggeredGate = failFastGate;
+        }
+        else {
+            triggeredGate = null;
+        }
+        return reports.getResult();
     }
 
     private FilePath getFileName(final MojoInfo mojo, final MavenProject pom) {
@@ -145,7 +194,7 @@ public class CheckStyleReporter extends HealthAwareReporter<CheckStyleResult> {
     @Override
     protected CheckStyleResult createResult(final MavenBuild build, final ParserResult project) {
         return new CheckStyleReporterResult(build, getDefaultEncoding(), project,
-                usePreviousBuildAsReference(), useOnlyStableBuildsAsReference());
+                usePreviousBuildAsReference(), useOnlyStableBuildsAsReference(), triggeredGate);
     }
 
     @Override
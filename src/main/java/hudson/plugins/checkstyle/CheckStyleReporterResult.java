@@ -4,6 +4,7 @@ import hudson.model.Run;
 import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.checkstyle.parser.FailFastGate;
 
 /**
  * Represents the aggregated results of the Checkstyle analysis in m2 jobs.
@@ -31,8 +32,33 @@ public class CheckStyleReporterResult extends CheckStyleResult {
      */
     public CheckStyleReporterResult(final Run<?, ?> build, final String defaultEncoding, final ParserResult result,
             final boolean usePreviousBuildAsReference, final boolean useStableBuildAsReference) {
+        this(build, defaultEncoding, result, usePreviousBuildAsReference, useStableBuildAsReference, null);
+    }
+
+    /**
+     * Creates a new instance of {@link CheckStyleReporterResult}. If the specified fail-fast gate has been
+     * triggered, then the result is marked as truncated.
+     *
+     * @param build
+     *            the current build as owner of this action
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param result
+     *            the parsed result with all annotations
+     * @param usePreviousBuildAsReference
+     *            determines whether to use the previous build as the reference
+     *            build
+     * @param useStableBuildAsReference
+     *            determines whether only stable builds should be used as
+     *            reference builds or not
+     * @param failFastGate
+     *            the gate that counted the warnings while parsing, or <code>null</code> if there is no gate
+     */
+    public CheckStyleReporterResult(final Run<?, ?> build, final String defaultEncoding, final ParserResult result,
+            final boolean usePreviousBuildAsReference, final boolean useStableBuildAsReference,
+            final FailFastGate failFastGate) {
         super(build, defaultEncoding, result, usePreviousBuildAsReference, useStableBuildAsReference,
-                CheckStyleMavenResultAction.class);
+                CheckStyleMavenResultAction.class, failFastGate);
     }
 
     @Override
@@ -1,23 +1,78 @@
 package hudson.plugins.checkstyle;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.basic.StringConverter;
 
+import hudson.XmlFile;
 import hudson.model.Run;
 import hudson.plugins.analysis.core.BuildHistory;
 import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.views.DetailFactory;
+import hudson.plugins.checkstyle.parser.FailFastGate;
+import hudson.plugins.checkstyle.parser.ReportDigest;
 import hudson.plugins.checkstyle.parser.Warning;
+import hudson.plugins.checkstyle.parser.WarningIndex.Property;
 
 /**
  * Represents the results of the Checkstyle analysis. One instance of this class
- * is persisted for each build via an XML file.
+ * is persisted for each build via an XML file. The warnings are stored in the
+ * binary file {@link #BINARY_FILE_NAME}, warnings of older builds are read from
+ * the XML file {@link #getSerializationFileName()}. The detail views of a
+ * single module, package, file, category or type read only the warnings
+ * that are shown, using the index {@link #INDEX_FILE_NAME}.
  *
  * @author Ulli Hafner
  */
 public class CheckStyleResult extends BuildResult {
     private static final long serialVersionUID = 2768250056765266658L;
 
+    /** Name of the file that stores the warnings in a columnar binary format. */
+    static final String BINARY_FILE_NAME = "checkstyle-warnings.bin";
+    /** Name of the file that stores the index of the binary file. */
+    static final String INDEX_FILE_NAME = "checkstyle-warnings.idx";
+
+    /** Canonical instances of the strings of all deserialized warnings, the entries are released by the GC. */
+    private static final Map<String, WeakReference<String>> STRINGS
+            = Collections.synchronizedMap(new WeakHashMap<String, WeakReference<String>>());
+    /** The XStream instances that already use the canonical strings. */
+    private static final Map<XStream, Boolean> CONFIGURED_STREAMS
+            = Collections.synchronizedMap(new WeakHashMap<XStream, Boolean>());
+
+    /** The absolute names of the Checkstyle reports of this build, the warnings refer to their index. */
+    private List<String> reportNames; // NOPMD: not available in old results
+    /** The digests of the Checkstyle reports of this build, mapped by the absolute names of the reports. */
+    private Map<String, ReportDigest> reportDigests; // NOPMD: not available in old results
+    /** The number of warnings per priority, category, type and module. */
+    private WarningAggregates aggregates; // NOPMD: not available in old results
+    /**
+     * The number of warnings per priority (high, normal, low) that have been counted by the fail-fast gate, if
+     * the gate has been triggered and the warnings of this result are a sample only.
+     */
+    private int[] countedWarnings; // NOPMD: not available in old results
+
     /**
      * Creates a new instance of {@link CheckStyleResult}.
      *
@@ -40,6 +95,33 @@ public class CheckStyleResult extends BuildResult {
                 CheckStyleResultAction.class);
     }
 
+    /**
+     * Creates a new instance of {@link CheckStyleResult}. If the specified fail-fast gate has been triggered,
+     * then the result contains a sample of the warnings only: the result is marked as truncated, it is neither
+     * added to the trend nor used as reference build.
+     *
+     * @param build
+     *            the current build as owner of this action
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param result
+     *            the parsed result with all annotations
+     * @param usePreviousBuildAsReference
+     *            determines whether to use the previous build as the reference
+     *            build
+     * @param useStableBuildAsReference
+     *            determines whether only stable builds should be used as
+     *            reference builds or not
+     * @param failFastGate
+     *            the gate that counted the warnings while parsing
+     */
+    public CheckStyleResult(final Run<?, ?> build, final String defaultEncoding, final ParserResult result,
+            final boolean usePreviousBuildAsReference, final boolean useStableBuildAsReference,
+            final FailFastGate failFastGate) {
+        this(build, new BuildHistory(build, CheckStyleResultAction.class, usePreviousBuildAsReference,
+                useStableBuildAsReference), result, defaultEncoding, true, failFastGate);
+    }
+
     /**
      * Creates a new instance of {@link CheckStyleResult}.
      *
@@ -58,19 +140,218 @@ public class CheckStyleResult extends BuildResult {
     protected CheckStyleResult(final Run<?, ?> build, final String defaultEncoding, final ParserResult result,
             final boolean usePreviousBuildAsReference, final boolean useStableBuildAsReference,
             final Class<? extends ResultAction<CheckStyleResult>> actionType) {
+        this(build, defaultEncoding, result, usePreviousBuildAsReference, useStableBuildAsReference, actionType,
+                null);
+    }
+
+    /**
+     * Creates a new instance of {@link CheckStyleResult}. If the specified fail-fast gate has been triggered,
+     * then the result is marked as truncated.
+     *
+     * @param build
+     *            the current build as owner of this action
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param result
+     *            the parsed result with all annotations
+     * @param usePreviousBuildAsReference
+     *            determines whether to use the previous build as the reference
+     *            build
+     * @param useStableBuildAsReference
+     *            determines whether only stable builds should be used as
+     *            reference builds or not
+     * @param actionType
+     *            the type of the result action
+     * @param failFastGate
+     *            the gate that counted the warnings while parsing, or <code>null</code> if there is no gate
+     */
+    protected CheckStyleResult(final Run<?, ?> build, final String defaultEncoding, final ParserResult result,
+            final boolean usePreviousBuildAsReference, final boolean useStableBuildAsReference,
+            final Class<? extends ResultAction<CheckStyleResult>> actionType, final FailFastGate failFastGate) {
         this(build, new BuildHistory(build, actionType, usePreviousBuildAsReference, useStableBuildAsReference),
-                result, defaultEncoding, true);
+                result, defaultEncoding, true, failFastGate);
     }
 
     CheckStyleResult(final Run<?, ?> build, final BuildHistory history,
                      final ParserResult result, final String defaultEncoding, final boolean canSerialize) {
+        this(build, history, result, defaultEncoding, canSerialize, null);
+    }
+
+    private CheckStyleResult(final Run<?, ?> build, final BuildHistory history, final ParserResult result,
+            final String defaultEncoding, final boolean canSerialize, final FailFastGate failFastGate) {
         super(build, history, result, defaultEncoding);
 
+        if (failFastGate != null && failFastGate.isTriggered()) {
+            countedWarnings = new int[] {failFastGate.getNumberOfWarnings(Priority.HIGH),
+                    failFastGate.getNumberOfWarnings(Priority.NORMAL), failFastGate.getNumberOfWarnings(Priority.LOW)};
+        }
+        aggregates = new WarningAggregates(result.getAnnotations(), getNumberOfNewWarnings(),
+                getNumberOfFixedWarnings());
         if (canSerialize) {
             serializeAnnotations(result.getAnnotations());
         }
     }
 
+    /**
+     * Returns whether the fail-fast gate has been triggered while parsing, so that this result contains a
+     * sample of the warnings only. The totals, the new and the fixed warnings of such a result are not
+     * meaningful: the result is not part of the trend and is not used as reference build.
+     *
+     * @return <code>true</code> if this result contains a sample of the warnings only
+     */
+    public boolean isTruncated() {
+        return countedWarnings != null;
+    }
+
+    /**
+     * Returns the number of warnings of the build. If this result is truncated, then the number of warnings
+     * that have been counted by the fail-fast gate is returned, otherwise the number of warnings of this
+     * result.
+     *
+     * @return the number of warnings
+     */
+    public int getNumberOfCountedWarnings() {
+        if (isTruncated()) {
+            return countedWarnings[0] + countedWarnings[1] + countedWarnings[2];
+        }
+        return getNumberOfAnnotations();
+    }
+
+    /**
+     * Returns the number of warnings of the build with the specified priority. If this result is truncated,
+     * then the number of warnings that have been counted by the fail-fast gate is returned, otherwise the
+     * number of warnings of this result.
+     *
+     * @param priority
+     *            the priority
+     * @return the number of warnings
+     */
+    public int getNumberOfCountedWarnings(final Priority priority) {
+        if (isTruncated()) {
+            return countedWarnings[WarningAggregates.getIndex(priority)];
+        }
+        return getNumberOfAnnotations(priority);
+    }
+
+    /**
+     * Marks this result as truncated and sets the number of warnings of the build. Used for the aggregated
+     * results of Maven builds that contain a truncated module result.
+     *
+     * @param high
+     *            the number of warnings with priority high
+     * @param normal
+     *            the number of warnings with priority normal
+     * @param low
+     *            the number of warnings with priority low
+     */
+    void setCountedWarnings(final int high, final int normal, final int low) {
+        countedWarnings = new int[] {high, normal, low};
+    }
+
+    /**
+     * Returns whether this result is successful. A truncated result is never successful, so it is not
+     * selected as reference build.
+     *
+     * @return <code>true</code> if this result is successful and not truncated
+     */
+    @Override
+    public boolean isSuccessful() {
+        return !isTruncated() && super.isSuccessful();
+    }
+
+    /**
+     * Returns the number of warnings per priority and author. The aggregates are stored with
+     * the build, so the warnings are read only for builds that have been recorded before the aggregates have
+     * been introduced.
+     *
+     * @return the aggregates
+     */
+    public WarningAggregates getAggregates() {
+        if (aggregates == null) {
+            aggregates = new WarningAggregates(getAnnotations(), getNumberOfNewWarnings(),
+                    getNumberOfFixedWarnings());
+        }
+        return aggregates;
+    }
+
+    /**
+     * Returns the digests of the Checkstyle reports of this build.
+     *
+     * @return the digests, mapped by the absolute names of the reports
+     */
+    public Map<String, ReportDigest> getReportDigests() {
+        if (reportDigests == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(reportDigests);
+    }
+
+    /**
+     * Sets the digests of the Checkstyle reports of this build.
+     *
+     * @param reportDigests
+     *            the digests, mapped by the absolute names of the reports
+     */
+    public void setReportDigests(final Map<String, ReportDigest> reportDigests) {
+        this.reportDigests = new TreeMap<String, ReportDigest>(reportDigests);
+    }
+
+    /**
+     * Returns the names of the Checkstyle reports of this build.
+     *
+     * @return the absolute names of the reports, the index of a name is the report index of the warnings
+     * @see Warning#getReportIndex()
+     */
+    public List<String> getReportNames() {
+        if (reportNames == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(reportNames);
+    }
+
+    /**
+     * Sets the names of the Checkstyle reports of this build.
+     *
+     * @param reportNames
+     *            the absolute names of the reports, the index of a name is the report index of the warnings
+     */
+    public void setReportNames(final List<String> reportNames) {
+        this.reportNames = new ArrayList<String>(reportNames);
+    }
+
+    /**
+     * Returns copies of the warnings of this build that have been read from the specified reports. The
+     * warnings of this build are not shared, since they are modified when they are added to another build.
+     *
+     * @param reports
+     *            the absolute names of the reports
+     * @param targetReportNames
+     *            the names of the reports of the build that receives the copies, the report indexes of the
+     *            copies refer to this list
+     * @return copies of the warnings of the reports
+     */
+    public Collection<FileAnnotation> copyAnnotationsOfReports(final Set<String> reports,
+            final List<String> targetReportNames) {
+        List<String> names = getReportNames();
+        int[] targetIndexes = new int[names.size()];
+        for (int i = 0; i < targetIndexes.length; i++) {
+            targetIndexes[i] = reports.contains(names.get(i)) ? targetReportNames.indexOf(names.get(i)) : -1;
+        }
+
+        List<FileAnnotation> copies = new ArrayList<FileAnnotation>();
+        for (FileAnnotation annotation : getAnnotations()) {
+            if (annotation instanceof Warning) {
+                int index = ((Warning)annotation).getReportIndex();
+                if (index >= 0 && index < targetIndexes.length && targetIndexes[index] >= 0) {
+                    Warning copy = new Warning((Warning)annotation);
+                    copy.setReportIndex(targetIndexes[index]);
+                    copies.add(copy);
+                }
+            }
+        }
+        return copies;
+    }
+
     @Override
     public String getHeader() {
         return Messages.Checkstyle_ResultAction_Header();
@@ -79,15 +360,21 @@ public class CheckStyleResult extends BuildResult {
     @Override
     protected void configure(final XStream xstream) {
         xstream.alias("warning", Warning.class);
+        if (CONFIGURED_STREAMS.put(xstream, Boolean.TRUE) == null) {
+            xstream.registerConverter(new StringConverter(STRINGS, Integer.MAX_VALUE));
+        }
     }
 
     @Override
     public String getSummary() {
-        return "Checkstyle: " + createDefaultSummary(CheckStyleDescriptor.RESULT_URL, getNumberOfAnnotations(), getNumberOfModules());
+        return "Checkstyle: " + createDefaultSummary(CheckStyleDescriptor.RESULT_URL, getNumberOfCountedWarnings(), getNumberOfModules());
     }
 
     @Override
     protected String createDeltaMessage() {
+        if (isTruncated()) {
+            return StringUtils.EMPTY;
+        }
         return createDefaultDeltaMessage(CheckStyleDescriptor.RESULT_URL, getNumberOfNewWarnings(), getNumberOfFixedWarnings());
     }
 
@@ -101,6 +388,60 @@ public class CheckStyleResult extends BuildResult {
         return "checkstyle-warnings.xml";
     }
 
+    @Override
+    protected XmlFile getDataFile() {
+        return new WarningsDataFile(super.getDataFile(), new File(getOwner().getRootDir(), BINARY_FILE_NAME),
+                new File(getOwner().getRootDir(), INDEX_FILE_NAME));
+    }
+
+    /**
+     * Returns the detail view for the specified link. The detail views of a single module, package, file,
+     * category or type are created from the indexed warnings of the view only. All other views use all
+     * warnings of this build.
+     *
+     * @param link
+     *            the link to identify the sub page to show
+     * @param request
+     *            Stapler request
+     * @param response
+     *            Stapler response
+     * @return the dynamic result of this module detail view
+     */
+    @Override
+    public Object getDynamic(final String link, final StaplerRequest request, final StaplerResponse response) {
+        JavaProject slice = readSlice(link);
+        if (slice != null) {
+            return DetailFactory.create(getResultActionType()).createDetails(link, getOwner(), slice,
+                    getDefaultEncoding(), getDisplayName());
+        }
+        return super.getDynamic(link, request, response);
+    }
+
+    private JavaProject readSlice(final String link) {
+        for (Property property : Property.values()) {
+            if (link.startsWith(property.getLinkPrefix())) {
+                try {
+                    int hashCode = Integer.parseInt(link.substring(property.getLinkPrefix().length()));
+                    FileAnnotation[] annotations = ((WarningsDataFile)getDataFile()).readSlice(property, hashCode);
+                    if (annotations != null) {
+                        JavaProject slice = new JavaProject();
+                        slice.addAnnotations(annotations);
+                        return slice;
+                    }
+                }
+                catch (NumberFormatException exception) {
+                    return null;
+                }
+                catch (IOException exception) {
+                    Logger.getLogger(CheckStyleResult.class.getName()).log(Level.WARNING,
+                            "Can't read the index of the Checkstyle warnings", exception);
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String getDisplayName() {
         return Messages.Checkstyle_ProjectAction_Name();
@@ -0,0 +1,164 @@
+package hudson.plugins.checkstyle;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.RootAction;
+import hudson.plugins.checkstyle.rules.CheckStyleRules;
+
+/**
+ * Serves the descriptions of the Checkstyle rules, so that the tool tips of the warnings do not need to embed
+ * the complete description. The tool tip of a warning contains a short plain text summary of the description
+ * only, since a link in a tool tip can't be clicked. The link to the description that is served by this action
+ * is shown on the row of the warning instead. The summary is extracted only once for each warning type, the
+ * localized link is created for each request. Since the descriptions are bundled with the plug-in, they can be
+ * cached by the browser.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class CheckStyleRulesAction implements RootAction {
+    /** URL of this action. */
+    static final String URL_NAME = "checkstyle-rules";
+
+    private static final int MAXIMUM_SUMMARY_LENGTH = 200;
+    private static final int MAXIMUM_CACHED_SUMMARIES = 1000;
+    private static final int MAXIMUM_AGE = 24 * 60 * 60;
+    private static final Pattern TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Summaries of the rule descriptions, mapped by warning type. Empty if there is no description. */
+    private static final ConcurrentMap<String, String> SUMMARIES = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the tool tip of a warning with the specified type: a summary of the rule description.
+     *
+     * @param type
+     *            the type of the warning
+     * @return the tool tip, or an empty string if there is no description for the type
+     */
+    public static String getToolTip(final String type) {
+        return getSummary(type);
+    }
+
+    /**
+     * Returns the link to the complete description of the rule of a warning with the specified type.
+     *
+     * @param type
+     *            the type of the warning
+     * @return the link, or an empty string if there is no description for the type
+     */
+    public static String getDescriptionLink(final String type) {
+        if (getSummary(type).isEmpty()) {
+            return StringUtils.EMPTY;
+        }
+        return String.format("<a href=\"%s/%s/%s\">%s</a>", getContextPath(), URL_NAME, Util.rawEncode(type),
+                Messages.Checkstyle_Rules_Details());
+    }
+
+    private static String getSummary(final String type) {
+        if (type == null) {
+            return StringUtils.EMPTY;
+        }
+        String summary = SUMMARIES.get(type);
+        if (summary == null) {
+            CheckStyleRules rules = CheckStyleRules.getInstance();
+            if (!rules.isInitialized()) {
+                return StringUtils.EMPTY;
+            }
+            summary = createSummary(rules.getDescription(type));
+            if (SUMMARIES.size() >= MAXIMUM_CACHED_SUMMARIES) {
+                SUMMARIES.clear();
+            }
+            SUMMARIES.put(type, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Creates the summary of the specified rule description: the first sentence of the plain text of the
+     * description. The text is abbreviated before it is escaped, so that neither tags nor entities are cut.
+     *
+     * @param description
+     *            the HTML description of the rule
+     * @return the escaped summary, or an empty string if there is no description
+     */
+    static String createSummary(final String description) {
+        if (StringUtils.isBlank(description)) {
+            return StringUtils.EMPTY;
+        }
+        String text = StringEscapeUtils.unescapeHtml(TAGS.matcher(description).replaceAll(" "));
+        text = WHITESPACE.matcher(text).replaceAll(" ").trim();
+        return StringEscapeUtils.escapeHtml(
+                StringUtils.abbreviate(StringUtils.substringBefore(text, ". "), MAXIMUM_SUMMARY_LENGTH));
+    }
+
+    private static String getContextPath() {
+        StaplerRequest request = Stapler.getCurrentRequest();
+        if (request == null) {
+            return StringUtils.EMPTY;
+        }
+        return request.getContextPath();
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Serves the description of the rule that is specified by the remaining path of the request.
+     *
+     * @param request
+     *            Stapler request
+     * @param response
+     *            Stapler response
+     * @throws IOException
+     *             if the description could not be written
+     */
+    public void doDynamic(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        CheckStyleRules rules = CheckStyleRules.getInstance();
+        if (!rules.isInitialized()) {
+            response.setHeader("Cache-Control", "no-cache");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        String description = rules.getDescription(StringUtils.removeStart(request.getRestOfPath(), "/"));
+        if (StringUtils.isBlank(description)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String eTag = '"' + Integer.toHexString(description.hashCode()) + '"';
+        response.setHeader("ETag", eTag);
+        response.setHeader("Cache-Control", "public, max-age=" + MAXIMUM_AGE);
+        if (eTag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType("text/html;charset=UTF-8");
+        response.getWriter().write(description);
+    }
+}
@@ -0,0 +1,208 @@
+package hudson.plugins.checkstyle;
+
+import java.awt.Color;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.labels.StandardCategoryToolTipGenerator;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.renderer.category.CategoryItemRenderer;
+import org.jfree.chart.urls.CategoryURLGenerator;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.util.ColorPalette;
+import hudson.util.Graph;
+
+/**
+ * Trend graph of a job that is created from the {@link TrendStore} of the job. The graph shows either one
+ * value per build or, for the aggregated trends of the {@link CheckStyleIndex}, one value per day.
+ *
+ * @author Ulli Hafner
+ */
+public class TrendGraph extends Graph {
+    /**
+     * The available trend graphs.
+     */
+    public enum Type {
+        /** Number of warnings per priority. */
+        PRIORITY("PRIORITY"),
+        /** Number of new and fixed warnings. */
+        NEW_VERSUS_FIXED("FIXED"),
+        /** Total number of warnings. */
+        TOTALS("TOTALS");
+
+        private final String graphId;
+
+        Type(final String graphId) {
+            this.graphId = graphId;
+        }
+
+        /**
+         * Returns the type that corresponds to the specified graph of the graph configuration.
+         *
+         * @param graphId
+         *            the ID of the graph
+         * @return the type, or <code>null</code> if the graph can't be created from the {@link TrendStore}
+         */
+        public static Type fromGraphId(final String graphId) {
+            for (Type type : values()) {
+                if (type.graphId.equals(graphId)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final List<TrendStore.Entry> entries;
+    private final Type type;
+    private final String resultUrl;
+
+    /**
+     * Creates a new instance of {@link TrendGraph}.
+     *
+     * @param timestamp
+     *            the time of the last modification of the trend
+     * @param width
+     *            the width of the graph
+     * @param height
+     *            the height of the graph
+     * @param entries
+     *            the trend of the job, ordered by build number or by day
+     * @param type
+     *            the type of the graph
+     * @param resultUrl
+     *            the URL of the result action of a build, relative to the build, or <code>null</code> if the
+     *            entries are days
+     */
+    public TrendGraph(final long timestamp, final int width, final int height, final List<TrendStore.Entry> entries,
+            final Type type, final String resultUrl) {
+        super(timestamp, width, height);
+
+        this.entries = entries;
+        this.type = type;
+        this.resultUrl = resultUrl;
+    }
+
+    @Override
+    protected JFreeChart createGraph() {
+        CategoryDataset dataSet = createDataSet();
+        JFreeChart chart;
+        if (type == Type.NEW_VERSUS_FIXED) {
+            chart = ChartFactory.createLineChart(null, null, null, dataSet, PlotOrientation.VERTICAL,
+                    true, true, false);
+        }
+        else {
+            chart = ChartFactory.createStackedAreaChart(null, null, null, dataSet, PlotOrientation.VERTICAL,
+                    type == Type.PRIORITY, true, false);
+        }
+        chart.setBackgroundPaint(Color.white);
+
+        CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        CategoryAxis domainAxis = plot.getDomainAxis();
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+        plot.getRangeAxis().setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+
+        CategoryItemRenderer renderer = plot.getRenderer();
+        if (type == Type.NEW_VERSUS_FIXED) {
+            renderer.setSeriesPaint(0, ColorPalette.RED);
+            renderer.setSeriesPaint(1, ColorPalette.BLUE);
+        }
+        else if (type == Type.PRIORITY) {
+            renderer.setSeriesPaint(0, ColorPalette.RED);
+            renderer.setSeriesPaint(1, ColorPalette.YELLOW);
+            renderer.setSeriesPaint(2, ColorPalette.BLUE);
+        }
+        else {
+            renderer.setSeriesPaint(0, ColorPalette.BLUE);
+        }
+        renderer.setBaseToolTipGenerator(new StandardCategoryToolTipGenerator());
+        if (resultUrl != null) {
+            renderer.setBaseItemURLGenerator(new CategoryURLGenerator() {
+                @Override
+                public String generateURL(final CategoryDataset dataset, final int series, final int category) {
+                    return ((Label)dataset.getColumnKey(category)).order + "/" + resultUrl;
+                }
+            });
+        }
+        return chart;
+    }
+
+    private CategoryDataset createDataSet() {
+        DefaultCategoryDataset dataSet = new DefaultCategoryDataset();
+        DateFormat dayFormat = new SimpleDateFormat("MM-dd");
+        for (TrendStore.Entry entry : entries) {
+            Label label;
+            if (resultUrl == null) {
+                label = new Label(entry.getTimestamp(), dayFormat.format(new Date(entry.getTimestamp())));
+            }
+            else {
+                label = new Label(entry.getBuild(), "#" + entry.getBuild());
+            }
+            if (type == Type.PRIORITY) {
+                dataSet.addValue(entry.getTotal(Priority.HIGH), Priority.HIGH.getLongLocalizedString(), label);
+                dataSet.addValue(entry.getTotal(Priority.NORMAL), Priority.NORMAL.getLongLocalizedString(), label);
+                dataSet.addValue(entry.getTotal(Priority.LOW), Priority.LOW.getLongLocalizedString(), label);
+            }
+            else if (type == Type.NEW_VERSUS_FIXED) {
+                dataSet.addValue(entry.getNewWarnings(), Messages.Checkstyle_Trend_New(), label);
+                dataSet.addValue(entry.getFixedWarnings(), Messages.Checkstyle_Trend_Fixed(), label);
+            }
+            else {
+                dataSet.addValue(entry.getTotal(), Messages.Checkstyle_Trend_Total(), label);
+            }
+        }
+        return dataSet;
+    }
+
+    /**
+     * Label of a build or a day on the domain axis.
+     */
+    private static final class Label implements Comparable<Label> {
+        private final long order;
+        private final String text;
+
+        Label(final long order, final String text) {
+            this.order = order;
+            this.text = text;
+        }
+
+        @Override
+        public int compareTo(final Label other) {
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Label && ((Label)obj).order == order;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (order ^ (order >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package hudson.plugins.checkstyle;
+
+import javax.imageio.ImageIO;
+import javax.servlet.http.HttpServletResponse;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Caches the rendered images and image maps of the {@link TrendGraph trend graphs} of all jobs. A rendering
+ * is identified by the job, the graph type, the size, the number of builds, the number of the last completed
+ * build, the time of the last modification of the {@link TrendStore} and the locale of the localized legend.
+ * The responses contain an ETag with these values, so that clients that poll the graphs get a 304 response
+ * until the trend changes. At most
+ * {@value #MAXIMUM_RENDERINGS} renderings are kept per job. The renderings of a job are evicted when one of
+ * its builds completes or is deleted and when the job is deleted, renamed or moved.
+ *
+ * @author Ulli Hafner
+ */
+public final class TrendGraphCache {
+    private static final int MAXIMUM_JOBS = 1000;
+    /** Maximum number of renderings per job, the least recently used renderings are evicted. */
+    static final int MAXIMUM_RENDERINGS = 8;
+    private static final int MAXIMUM_SIZE = 2000;
+
+    /** The renderings of the jobs, mapped by the full name of the job and the rendering key. */
+    private static final ConcurrentMap<String, Map<String, Rendering>> RENDERINGS
+            = new ConcurrentHashMap<String, Map<String, Rendering>>();
+
+    /**
+     * Returns the cached trend graph of the specified job.
+     *
+     * @param job
+     *            the job
+     * @param type
+     *            the type of the graph
+     * @param width
+     *            the width of the graph
+     * @param height
+     *            the height of the graph
+     * @param buildCount
+     *            the number of builds to show, 0 shows all builds
+     * @param locale
+     *            the locale of the request, the legend of the graph is localized
+     * @return the graph
+     */
+    public static CachedGraph getGraph(final Job<?, ?> job, final TrendGraph.Type type, final int width,
+            final int height, final int buildCount, final Locale locale) {
+        Run<?, ?> lastCompletedBuild = job.getLastCompletedBuild();
+        int build = lastCompletedBuild == null ? 0 : lastCompletedBuild.getNumber();
+
+        return new CachedGraph(job, type, getSize(width), getSize(height), Math.max(buildCount, 0), build,
+                TrendStore.getLastModified(job), locale == null ? Locale.getDefault() : locale);
+    }
+
+    private static int getSize(final int size) {
+        return Math.min(Math.max(size, 1), MAXIMUM_SIZE);
+    }
+
+    /**
+     * Evicts all renderings of the specified job.
+     *
+     * @param job
+     *            the job
+     */
+    static void evict(final Job<?, ?> job) {
+        RENDERINGS.remove(job.getFullName());
+    }
+
+    /**
+     * Evicts all renderings of the specified job and of the jobs that are nested in the specified item.
+     *
+     * @param fullName
+     *            the full name of the job or folder
+     */
+    static void evict(final String fullName) {
+        CheckStyleIndex.removeItem(RENDERINGS, fullName);
+    }
+
+    /**
+     * Returns the number of cached renderings of the specified job.
+     *
+     * @param job
+     *            the job
+     * @return the number of renderings
+     */
+    static int getNumberOfRenderings(final Job<?, ?> job) {
+        Map<String, Rendering> renderings = RENDERINGS.get(job.getFullName());
+        return renderings == null ? 0 : renderings.size();
+    }
+
+    @SuppressWarnings("serial")
+    private static Map<String, Rendering> createRenderings() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, Rendering>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Rendering> eldest) {
+                return size() > MAXIMUM_RENDERINGS;
+            }
+        });
+    }
+
+    private TrendGraphCache() {
+        // prevents instantiation
+    }
+
+    /**
+     * A trend graph that is rendered at most once.
+     */
+    public static final class CachedGraph {
+        private final Job<?, ?> job;
+        private final TrendGraph.Type type;
+        private final int width;
+        private final int height;
+        private final int buildCount;
+        private final String key;
+        private final String eTag;
+
+        CachedGraph(final Job<?, ?> job, final TrendGraph.Type type, final int width, final int height,
+                final int buildCount, final int build, final long lastModified, final Locale locale) {
+            this.job = job;
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            this.buildCount = buildCount;
+
+            key = type + "-" + width + "x" + height + "-" + buildCount + "-" + build + "-"
+                    + Long.toHexString(lastModified) + "-" + locale;
+            eTag = Integer.toHexString(job.getFullName().hashCode()) + "-" + key;
+        }
+
+        /**
+         * Renders the image of the graph.
+         *
+         * @param request
+         *            Stapler request
+         * @param response
+         *            Stapler response
+         * @throws IOException
+         *             if the image could not be written
+         */
+        public void doPng(final StaplerRequest request, final StaplerResponse response) throws IOException {
+            if (isNotModified(request, response, "png")) {
+                return;
+            }
+            byte[] image = getRendering().image;
+            response.setContentType("image/png");
+            response.setContentLength(image.length);
+            response.getOutputStream().write(image);
+        }
+
+        /**
+         * Renders the clickable map of the graph.
+         *
+         * @param request
+         *            Stapler request
+         * @param response
+         *            Stapler response
+         * @throws IOException
+         *             if the map could not be written
+         */
+        public void doMap(final StaplerRequest request, final StaplerResponse response) throws IOException {
+            if (isNotModified(request, response, "map")) {
+                return;
+            }
+            response.setContentType("text/html;charset=UTF-8");
+            response.getWriter().write(getRendering().map);
+        }
+
+        private boolean isNotModified(final StaplerRequest request, final StaplerResponse response,
+                final String kind) {
+            String value = '"' + eTag + "-" + kind + '"';
+            response.setHeader("ETag", value);
+            response.setHeader("Cache-Control", "private, max-age=0, must-revalidate");
+            response.setHeader("Vary", "Accept-Language");
+            if (value.equals(request.getHeader("If-None-Match"))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+            return false;
+        }
+
+        private Rendering getRendering() throws IOException {
+            Map<String, Rendering> renderings = RENDERINGS.get(job.getFullName());
+            if (renderings == null) {
+                if (RENDERINGS.size() >= MAXIMUM_JOBS) {
+                    RENDERINGS.clear();
+                }
+                renderings = createRenderings();
+                Map<String, Rendering> existing = RENDERINGS.putIfAbsent(job.getFullName(), renderings);
+                if (existing != null) {
+                    renderings = existing;
+                }
+            }
+            Rendering rendering = renderings.get(key);
+            if (rendering == null) {
+                rendering = render();
+                renderings.put(key, rendering);
+            }
+            return rendering;
+        }
+
+        private Rendering render() throws IOException {
+            List<TrendStore.Entry> entries = TrendStore.read(job);
+            if (buildCount > 0 && entries.size() > buildCount) {
+                entries = entries.subList(entries.size() - buildCount, entries.size());
+            }
+            TrendGraph graph = new TrendGraph(TrendStore.getLastModified(job), width, height, entries, type,
+                    CheckStyleDescriptor.RESULT_URL);
+            JFreeChart chart = graph.createGraph();
+            ChartRenderingInfo info = new ChartRenderingInfo();
+            BufferedImage image = chart.createBufferedImage(width, height, info);
+
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "PNG", png);
+            return new Rendering(png.toByteArray(), ChartUtilities.getImageMap("map", info));
+        }
+    }
+
+    /**
+     * The rendered image and map of a graph.
+     */
+    private static final class Rendering {
+        private final byte[] image;
+        private final String map;
+
+        Rendering(final byte[] image, final String map) {
+            this.image = image;
+            this.map = map;
+        }
+    }
+
+    /**
+     * Evicts the renderings of a job when one of its builds completes or is deleted.
+     */
+    @Extension
+    public static class EvictionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+            evict(run.getParent());
+        }
+
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            evict(run.getParent());
+        }
+    }
+}
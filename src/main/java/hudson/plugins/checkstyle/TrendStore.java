@@ -0,0 +1,532 @@
+package hudson.plugins.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Stores the trend of the Checkstyle warnings of a job in an append-only file in the root directory of the
+ * job. Each completed build adds a record of fixed size with the build number, the timestamp, the totals per
+ * priority and the number of new and fixed warnings. The trend graphs are created from this file, so the builds
+ * of the job do not need to be loaded. When the file is created, the totals of the previous builds of the job
+ * are copied from their results. The totals of the latest build of each job are cached in memory, they are
+ * read from the last record of the file after a restart.
+ *
+ * @author Ulli Hafner
+ */
+public final class TrendStore {
+    /** Name of the trend file in the root directory of the job. */
+    static final String FILE_NAME = "checkstyle-trend.bin";
+    /** Size of a record in bytes. */
+    static final int RECORD_SIZE = 32;
+    private static final int MAXIMUM_CACHED_JOBS = 10000;
+
+    /** Marks a job without trend file in the cache. */
+    private static final Entry NONE = new Entry(0, 0, 0, 0, 0, 0, 0);
+    /** The totals of the latest build of the jobs, mapped by the full name of the job. */
+    private static final ConcurrentMap<String, Entry> LATEST = new ConcurrentHashMap<String, Entry>();
+
+    private static final Logger LOGGER = Logger.getLogger(TrendStore.class.getName());
+
+    /**
+     * Appends the totals of the specified build to the trend of its job. If the build has already been
+     * recorded as the last record of the trend, then this record is replaced.
+     *
+     * @param build
+     *            the build
+     * @param aggregates
+     *            the number of warnings of the build
+     * @return the appended totals, or <code>null</code> if the totals could not be written
+     */
+    public static Entry append(final Run<?, ?> build, final WarningAggregates aggregates) {
+        Entry entry = new Entry(build.getNumber(), build.getTimeInMillis(), aggregates.getTotal(Priority.HIGH),
+                aggregates.getTotal(Priority.NORMAL), aggregates.getTotal(Priority.LOW),
+                aggregates.getNewWarnings(), aggregates.getFixedWarnings());
+        File file = getFile(build.getParent());
+        List<Entry> history = Collections.emptyList();
+        if (!file.exists()) {
+            history = readHistory(build);
+        }
+        synchronized (TrendStore.class) {
+            try {
+                List<Entry> entries = new ArrayList<Entry>();
+                if (file.exists()) {
+                    removeIncompleteRecord(file);
+                    removeLastRecord(file, build.getNumber());
+                }
+                else {
+                    entries.addAll(history);
+                }
+                entries.add(entry);
+
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(file, true)));
+                try {
+                    for (Entry current : entries) {
+                        current.write(output);
+                    }
+                }
+                finally {
+                    IOUtils.closeQuietly(output);
+                }
+                LATEST.put(build.getParent().getFullName(), entry);
+                return entry;
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't append build " + build + " to the Checkstyle trend", exception);
+                LATEST.remove(build.getParent().getFullName());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Creates the trend file of the specified job if the job has Checkstyle results but no trend file yet,
+     * e.g. because its builds have been recorded before the trend store has been introduced. The trend is
+     * created from the last completed build with a Checkstyle result and the results of its previous builds.
+     * Jobs without Checkstyle project action are skipped without loading any build.
+     *
+     * @param job
+     *            the job
+     */
+    public static void migrate(final Job<?, ?> job) {
+        if (exists(job) || job.getAction(CheckStyleProjectAction.class) == null) {
+            return;
+        }
+        for (Run<?, ?> run = job.getLastCompletedBuild(); run != null; run = run.getPreviousBuild()) {
+            CheckStyleResult result = getResult(run);
+            if (result != null && !result.isTruncated()) {
+                append(run, result.getAggregates());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the Checkstyle result of the specified build. If the build contains several results, e.g. the
+     * results of the modules and the aggregated result of a Maven build, then the last one is returned.
+     *
+     * @param build
+     *            the build
+     * @return the result, or <code>null</code> if the build has no Checkstyle result
+     */
+    static CheckStyleResult getResult(final Run<?, ?> build) {
+        CheckStyleResult result = null;
+        for (ResultAction<?> action : build.getActions(ResultAction.class)) {
+            if (action.getResult() instanceof CheckStyleResult) {
+                result = (CheckStyleResult) action.getResult();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the totals of the previous builds of the specified build from their results. The results are
+     * read without holding the lock of the trend files, since loading the builds may take a while.
+     *
+     * @param build
+     *            the build
+     * @return the totals of the previous builds, ordered by build number
+     */
+    private static List<Entry> readHistory(final Run<?, ?> build) {
+        LinkedList<Entry> history = new LinkedList<Entry>();
+        for (Run<?, ?> run = build.getPreviousBuild(); run != null; run = run.getPreviousBuild()) {
+            CheckStyleResult result = getResult(run);
+            if (result != null && !result.isTruncated()) {
+                history.addFirst(new Entry(run.getNumber(), run.getTimeInMillis(),
+                        result.getNumberOfAnnotations(Priority.HIGH), result.getNumberOfAnnotations(Priority.NORMAL),
+                        result.getNumberOfAnnotations(Priority.LOW), result.getNumberOfNewWarnings(),
+                        result.getNumberOfFixedWarnings()));
+            }
+        }
+        return history;
+    }
+
+    private static void removeLastRecord(final File file, final int build) throws IOException {
+        Entry last = readLatest(file);
+        if (last != NONE && last.getBuild() == build) {
+            RandomAccessFile access = new RandomAccessFile(file, "rw");
+            try {
+                access.setLength(file.length() - RECORD_SIZE);
+            }
+            finally {
+                access.close();
+            }
+        }
+    }
+
+    private static void removeIncompleteRecord(final File file) throws IOException {
+        long incomplete = file.length() % RECORD_SIZE;
+        if (incomplete != 0) {
+            RandomAccessFile access = new RandomAccessFile(file, "rw");
+            try {
+                access.setLength(file.length() - incomplete);
+            }
+            finally {
+                access.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the trend of the specified job, ordered by build number. If a build has been recorded several
+     * times, then the last record is used.
+     *
+     * @param job
+     *            the job
+     * @return the trend of the job, or an empty list if there is no trend file
+     */
+    public static List<Entry> read(final Job<?, ?> job) {
+        return new ArrayList<Entry>(readEntries(getFile(job)).values());
+    }
+
+    /**
+     * Returns the totals of the latest build of the specified job. The totals are cached, so only the last
+     * record of the trend file is read once after a restart.
+     *
+     * @param job
+     *            the job
+     * @return the totals of the latest build, or <code>null</code> if there is no trend file
+     */
+    public static Entry getLatest(final Job<?, ?> job) {
+        Entry latest = LATEST.get(job.getFullName());
+        if (latest == null) {
+            if (LATEST.size() >= MAXIMUM_CACHED_JOBS) {
+                LATEST.clear();
+            }
+            latest = readLatest(getFile(job));
+            Entry appended = LATEST.putIfAbsent(job.getFullName(), latest);
+            if (appended != null) {
+                latest = appended;
+            }
+        }
+        return latest == NONE ? null : latest;
+    }
+
+    /**
+     * Evicts the cached totals of the specified job and of the jobs that are nested in the specified item.
+     *
+     * @param fullName
+     *            the full name of the job or folder
+     */
+    static void evict(final String fullName) {
+        CheckStyleIndex.removeItem(LATEST, fullName);
+    }
+
+    private static Entry readLatest(final File file) {
+        synchronized (TrendStore.class) {
+            long complete = file.length() - file.length() % RECORD_SIZE;
+            if (complete < RECORD_SIZE) {
+                return NONE;
+            }
+            try {
+                byte[] record = new byte[RECORD_SIZE];
+                RandomAccessFile access = new RandomAccessFile(file, "r");
+                try {
+                    access.seek(complete - RECORD_SIZE);
+                    access.readFully(record);
+                }
+                finally {
+                    access.close();
+                }
+                return Entry.read(new DataInputStream(new ByteArrayInputStream(record)));
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the Checkstyle trend " + file, exception);
+                return NONE;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified job has a trend file.
+     *
+     * @param job
+     *            the job
+     * @return <code>true</code> if the trend file exists, <code>false</code> otherwise
+     */
+    public static boolean exists(final Job<?, ?> job) {
+        return getFile(job).exists();
+    }
+
+    /**
+     * Returns the time of the last modification of the trend of the specified job.
+     *
+     * @param job
+     *            the job
+     * @return the time in milliseconds, or 0 if there is no trend file
+     */
+    public static long getLastModified(final Job<?, ?> job) {
+        return getFile(job).lastModified();
+    }
+
+    private static SortedMap<Integer, Entry> readEntries(final File file) {
+        SortedMap<Integer, Entry> entries = new TreeMap<Integer, Entry>();
+        if (!file.exists()) {
+            return entries;
+        }
+        synchronized (TrendStore.class) {
+            DataInputStream input = null;
+            try {
+                input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                while (true) {
+                    Entry entry = Entry.read(input);
+                    entries.put(entry.getBuild(), entry);
+                }
+            }
+            catch (EOFException exception) {
+                // all records read, an incomplete last record is skipped
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the Checkstyle trend " + file, exception);
+            }
+            finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the specified build from the trend of its job.
+     *
+     * @param build
+     *            the build
+     */
+    static void remove(final Run<?, ?> build) {
+        File file = getFile(build.getParent());
+        synchronized (TrendStore.class) {
+            SortedMap<Integer, Entry> entries = readEntries(file);
+            if (entries.remove(build.getNumber()) == null) {
+                return;
+            }
+            File temporaryFile = new File(file.getParentFile(), FILE_NAME + ".tmp");
+            try {
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(temporaryFile)));
+                try {
+                    for (Entry entry : entries.values()) {
+                        entry.write(output);
+                    }
+                }
+                finally {
+                    IOUtils.closeQuietly(output);
+                }
+                FileUtils.deleteQuietly(file);
+                if (!temporaryFile.renameTo(file)) {
+                    throw new IOException("Can't rename " + temporaryFile + " to " + file);
+                }
+            }
+            catch (IOException exception) {
+                FileUtils.deleteQuietly(temporaryFile);
+                LOGGER.log(Level.WARNING, "Can't remove build " + build + " from the Checkstyle trend", exception);
+            }
+            finally {
+                LATEST.remove(build.getParent().getFullName());
+            }
+        }
+    }
+
+    private static File getFile(final Job<?, ?> job) {
+        return new File(job.getRootDir(), FILE_NAME);
+    }
+
+    private TrendStore() {
+        // prevents instantiation
+    }
+
+    /**
+     * The totals of a single build.
+     */
+    public static final class Entry {
+        private final int build;
+        private final long timestamp;
+        private final int high;
+        private final int normal;
+        private final int low;
+        private final int newWarnings;
+        private final int fixedWarnings;
+
+        Entry(final int build, final long timestamp, final int high, final int normal, final int low,
+                final int newWarnings, final int fixedWarnings) {
+            this.build = build;
+            this.timestamp = timestamp;
+            this.high = high;
+            this.normal = normal;
+            this.low = low;
+            this.newWarnings = newWarnings;
+            this.fixedWarnings = fixedWarnings;
+        }
+
+        static Entry read(final DataInputStream input) throws IOException {
+            return new Entry(input.readInt(), input.readLong(), input.readInt(), input.readInt(), input.readInt(),
+                    input.readInt(), input.readInt());
+        }
+
+        void write(final DataOutputStream output) throws IOException {
+            output.writeInt(build);
+            output.writeLong(timestamp);
+            output.writeInt(high);
+            output.writeInt(normal);
+            output.writeInt(low);
+            output.writeInt(newWarnings);
+            output.writeInt(fixedWarnings);
+        }
+
+        /**
+         * Returns the build number.
+         *
+         * @return the build number
+         */
+        public int getBuild() {
+            return build;
+        }
+
+        /**
+         * Returns the time when the build has been started.
+         *
+         * @return the timestamp in milliseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the number of warnings with the specified priority.
+         *
+         * @param priority
+         *            the priority
+         * @return the number of warnings
+         */
+        public int getTotal(final Priority priority) {
+            if (priority == Priority.HIGH) {
+                return high;
+            }
+            else if (priority == Priority.NORMAL) {
+                return normal;
+            }
+            else {
+                return low;
+            }
+        }
+
+        /**
+         * Returns the total number of warnings.
+         *
+         * @return the number of warnings
+         */
+        public int getTotal() {
+            return high + normal + low;
+        }
+
+        /**
+         * Returns the number of warnings with priority high.
+         *
+         * @return the number of warnings
+         */
+        public int getHigh() {
+            return high;
+        }
+
+        /**
+         * Returns the number of warnings with priority normal.
+         *
+         * @return the number of warnings
+         */
+        public int getNormal() {
+            return normal;
+        }
+
+        /**
+         * Returns the number of warnings with priority low.
+         *
+         * @return the number of warnings
+         */
+        public int getLow() {
+            return low;
+        }
+
+        /**
+         * Returns the number of new warnings.
+         *
+         * @return the number of new warnings
+         */
+        public int getNewWarnings() {
+            return newWarnings;
+        }
+
+        /**
+         * Returns the number of fixed warnings.
+         *
+         * @return the number of fixed warnings
+         */
+        public int getFixedWarnings() {
+            return fixedWarnings;
+        }
+    }
+
+    /**
+     * Records the totals of a build when the build completes, so that each build is recorded once with its
+     * final result. Truncated results are not recorded. Afterwards the new record is added to the
+     * {@link CheckStyleIndex}.
+     */
+    @Extension
+    public static class RecordListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+            CheckStyleResult result = getResult(run);
+            if (result != null && !result.isTruncated()) {
+                WarningAggregates aggregates = result.getAggregates();
+                Entry entry = append(run, aggregates);
+                TrendGraphCache.evict(run.getParent());
+                AuthorStore.append(run, aggregates);
+                if (entry != null) {
+                    CheckStyleIndex.getInstance().add(run.getParent(), entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes deleted builds from the trend and updates the {@link CheckStyleIndex}.
+     */
+    @Extension
+    public static class DeletionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            if (exists(run.getParent())) {
+                remove(run);
+                CheckStyleIndex.getInstance().update(run.getParent());
+            }
+        }
+    }
+}
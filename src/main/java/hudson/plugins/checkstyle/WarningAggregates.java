@@ -0,0 +1,169 @@
+package hudson.plugins.checkstyle;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * The number of warnings of a build per priority and author, together with the number of new and fixed
+ * warnings. The aggregates are stored with the build, so that the {@link TrendStore} and the
+ * {@link AuthorStore} do not need to read the warnings of the build. The authors are only available if blame
+ * has been run.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningAggregates implements Serializable {
+    private static final long serialVersionUID = 3519640436658218233L;
+
+    private final int total;
+    private final int high;
+    private final int normal;
+    private final int low;
+    private final int newWarnings;
+    private final int fixedWarnings;
+    /** The number of warnings per author and priority (high, normal, low). */
+    private TreeMap<String, int[]> authors; // NOPMD: not available in old results
+
+    /**
+     * Creates a new instance of {@link WarningAggregates}.
+     *
+     * @param annotations
+     *            the warnings of the build
+     * @param newWarnings
+     *            the number of new warnings
+     * @param fixedWarnings
+     *            the number of fixed warnings
+     */
+    public WarningAggregates(final Collection<FileAnnotation> annotations, final int newWarnings,
+            final int fixedWarnings) {
+        int highCount = 0;
+        int normalCount = 0;
+        int lowCount = 0;
+        authors = new TreeMap<String, int[]>();
+        for (FileAnnotation annotation : annotations) {
+            if (annotation.getPriority() == Priority.HIGH) {
+                highCount++;
+            }
+            else if (annotation.getPriority() == Priority.NORMAL) {
+                normalCount++;
+            }
+            else {
+                lowCount++;
+            }
+            if (StringUtils.isNotBlank(annotation.getAuthorName())) {
+                int[] counts = authors.get(annotation.getAuthorName());
+                if (counts == null) {
+                    counts = new int[3];
+                    authors.put(annotation.getAuthorName(), counts);
+                }
+                counts[getIndex(annotation.getPriority())]++;
+            }
+        }
+        total = annotations.size();
+        high = highCount;
+        normal = normalCount;
+        low = lowCount;
+        this.newWarnings = newWarnings;
+        this.fixedWarnings = fixedWarnings;
+    }
+
+    /**
+     * Returns the index of the specified priority in the counts of an author.
+     *
+     * @param priority
+     *            the priority
+     * @return the index
+     */
+    static int getIndex(final Priority priority) {
+        if (priority == Priority.HIGH) {
+            return 0;
+        }
+        else if (priority == Priority.NORMAL) {
+            return 1;
+        }
+        else {
+            return 2;
+        }
+    }
+
+    /**
+     * Returns the total number of warnings.
+     *
+     * @return the number of warnings
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of warnings with the specified priority.
+     *
+     * @param priority
+     *            the priority
+     * @return the number of warnings
+     */
+    public int getTotal(final Priority priority) {
+        if (priority == Priority.HIGH) {
+            return high;
+        }
+        else if (priority == Priority.NORMAL) {
+            return normal;
+        }
+        else {
+            return low;
+        }
+    }
+
+    /**
+     * Returns the number of new warnings.
+     *
+     * @return the number of new warnings
+     */
+    public int getNewWarnings() {
+        return newWarnings;
+    }
+
+    /**
+     * Returns the number of fixed warnings.
+     *
+     * @return the number of fixed warnings
+     */
+    public int getFixedWarnings() {
+        return fixedWarnings;
+    }
+
+    /**
+     * Returns the authors of the warnings.
+     *
+     * @return the authors, or an empty set if blame has not been run
+     */
+    public Set<String> getAuthors() {
+        if (authors == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(authors.keySet());
+    }
+
+    /**
+     * Returns the number of warnings of the specified author with the specified priority.
+     *
+     * @param author
+     *            the name of the author
+     * @param priority
+     *            the priority
+     * @return the number of warnings
+     */
+    public int getTotal(final String author, final Priority priority) {
+        if (authors == null || !authors.containsKey(author)) {
+            return 0;
+        }
+        return authors.get(author)[getIndex(priority)];
+    }
+}
@@ -0,0 +1,260 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Caches the deserialized warnings of the builds of all jobs. The cache uses a memory budget: if the estimated
+ * size of all cached warnings exceeds the budget, then the warnings of the least recently used builds are
+ * evicted. The size of the warnings is estimated from the lengths of their strings and the number of their
+ * line ranges, strings that are shared by several warnings are counted once. The cache stores and returns
+ * copies of the arrays, so callers may modify the returned array without changing the cached warnings. The
+ * warnings of a build are removed when the build is deleted.
+ *
+ * @author Ulli Hafner
+ */
+public final class WarningsCache {
+    /** Default memory budget in MB. */
+    public static final int DEFAULT_BUDGET = 256;
+
+    /** Estimated number of bytes of a warning without its strings and line ranges. */
+    private static final long BYTES_PER_WARNING = 160;
+    /** Estimated number of bytes of a line range, including its reference in the list of ranges. */
+    private static final long BYTES_PER_LINE_RANGE = 32;
+    /** Estimated number of bytes of a string without its characters. */
+    private static final long BYTES_PER_STRING = 56;
+    private static final long MEGA_BYTE = 1024 * 1024;
+
+    /** Singleton instance. */
+    private static final WarningsCache INSTANCE = new WarningsCache();
+
+    /** The cached warnings, mapped by the absolute name of the data file in access order. */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long budget = DEFAULT_BUDGET * MEGA_BYTE;
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static WarningsCache getInstance() {
+        return INSTANCE;
+    }
+
+    private WarningsCache() {
+        // prevents instantiation
+    }
+
+    /**
+     * Returns the cached warnings of the specified data file.
+     *
+     * @param file
+     *            the data file
+     * @return the warnings, or <code>null</code> if the warnings of the file are not cached or if the file has
+     *         been changed since
+     */
+    public synchronized FileAnnotation[] get(final File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry != null && entry.lastModified == file.lastModified()) {
+            hits++;
+            return entry.annotations.clone();
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches the warnings of the specified data file.
+     *
+     * @param file
+     *            the data file
+     * @param annotations
+     *            the warnings of the file
+     */
+    public synchronized void put(final File file, final FileAnnotation[] annotations) {
+        Entry entry = new Entry(file.lastModified(), annotations.clone());
+        if (entry.size > budget) {
+            remove(file);
+            return;
+        }
+        Entry previous = entries.put(file.getAbsolutePath(), entry);
+        if (previous != null) {
+            size -= previous.size;
+        }
+        size += entry.size;
+        evict();
+    }
+
+    /**
+     * Removes the warnings of the specified data file.
+     *
+     * @param file
+     *            the data file
+     */
+    public synchronized void remove(final File file) {
+        Entry entry = entries.remove(file.getAbsolutePath());
+        if (entry != null) {
+            size -= entry.size;
+        }
+    }
+
+    /**
+     * Removes the warnings of all data files in the specified directory and its sub-directories.
+     *
+     * @param directory
+     *            the directory, e.g. the root directory of a build
+     */
+    public synchronized void removeAll(final File directory) {
+        String prefix = directory.getAbsolutePath() + File.separator;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                size -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > budget && iterator.hasNext()) {
+            size -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Sets the memory budget of the cache.
+     *
+     * @param megaBytes
+     *            the budget in MB, 0 disables the cache
+     */
+    public synchronized void setBudget(final int megaBytes) {
+        budget = Math.max(megaBytes, 0) * MEGA_BYTE;
+        evict();
+    }
+
+    /**
+     * Returns the memory budget of the cache.
+     *
+     * @return the budget in MB
+     */
+    public synchronized int getBudget() {
+        return (int) (budget / MEGA_BYTE);
+    }
+
+    /**
+     * Returns the estimated size of the cached warnings.
+     *
+     * @return the size in MB
+     */
+    public synchronized long getSize() {
+        return size / MEGA_BYTE;
+    }
+
+    /**
+     * Returns the number of builds with cached warnings.
+     *
+     * @return the number of builds
+     */
+    public synchronized int getNumberOfEntries() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests that have been served from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that required to read the data file.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the percentage of the requests that have been served from the cache.
+     *
+     * @return the hit rate in percent
+     */
+    public synchronized int getHitRate() {
+        if (hits + misses == 0) {
+            return 0;
+        }
+        return (int) (hits * 100 / (hits + misses));
+    }
+
+    /**
+     * Estimates the number of bytes that the specified warnings occupy in memory.
+     *
+     * @param annotations
+     *            the warnings
+     * @return the estimated size in bytes
+     */
+    static long estimateSize(final FileAnnotation[] annotations) {
+        Map<String, Boolean> strings = new IdentityHashMap<String, Boolean>();
+        long size = 0;
+        for (FileAnnotation annotation : annotations) {
+            size += BYTES_PER_WARNING + annotation.getLineRanges().size() * BYTES_PER_LINE_RANGE;
+            size += estimateSize(annotation.getMessage(), strings);
+            size += estimateSize(annotation.getFileName(), strings);
+            size += estimateSize(annotation.getCategory(), strings);
+            size += estimateSize(annotation.getType(), strings);
+            size += estimateSize(annotation.getModuleName(), strings);
+            size += estimateSize(annotation.getPackageName(), strings);
+        }
+        return size;
+    }
+
+    private static long estimateSize(final String value, final Map<String, Boolean> strings) {
+        if (value == null || strings.put(value, Boolean.TRUE) != null) {
+            return 0;
+        }
+        return BYTES_PER_STRING + 2L * value.length();
+    }
+
+    /**
+     * Removes the warnings of a build from the cache when the build is deleted.
+     */
+    @Extension
+    public static class EvictionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            getInstance().removeAll(run.getRootDir());
+        }
+    }
+
+    /**
+     * The cached warnings of a data file.
+     */
+    private static class Entry {
+        private final long lastModified;
+        private final FileAnnotation[] annotations;
+        private final long size;
+
+        Entry(final long lastModified, final FileAnnotation[] annotations) {
+            this.lastModified = lastModified;
+            this.annotations = annotations;
+            size = estimateSize(annotations);
+        }
+    }
+}
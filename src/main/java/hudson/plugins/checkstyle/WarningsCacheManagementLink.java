@@ -0,0 +1,85 @@
+package hudson.plugins.checkstyle;
+
+import java.io.IOException;
+
+import jenkins.model.Jenkins;
+
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.plugins.checkstyle.rules.CheckStyleRules;
+
+/**
+ * Shows the statistics of the {@link WarningsCache} and lets administrators configure its memory budget. The
+ * page also shows how many lookups of the {@link CheckStyleRules rule descriptions} found a description.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class WarningsCacheManagementLink extends ManagementLink {
+    @Override
+    public String getIconFileName() {
+        return CheckStyleDescriptor.ICON_URL_PREFIX + "checkstyle-48x48.png";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "checkstyle-cache";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.Checkstyle_Cache_Name();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.Checkstyle_Cache_Description();
+    }
+
+    /**
+     * Returns the cache.
+     *
+     * @return the cache
+     */
+    public WarningsCache getCache() {
+        return WarningsCache.getInstance();
+    }
+
+    /**
+     * Returns the rule descriptions.
+     *
+     * @return the rule descriptions
+     */
+    public CheckStyleRules getRules() {
+        return CheckStyleRules.getInstance();
+    }
+
+    /**
+     * Sets the memory budget of the cache.
+     *
+     * @param budget
+     *            the budget in MB
+     * @return redirect to this page
+     * @throws IOException
+     *             if the configuration could not be saved
+     */
+    @RequirePOST
+    public HttpResponse doConfigure(@QueryParameter final int budget) throws IOException {
+        Jenkins jenkins = Jenkins.getInstance();
+        jenkins.checkPermission(Jenkins.ADMINISTER);
+
+        CheckStylePlugin plugin = jenkins.getPlugin(CheckStylePlugin.class);
+        if (plugin == null) {
+            WarningsCache.getInstance().setBudget(budget);
+        }
+        else {
+            plugin.setCacheBudget(budget);
+        }
+        return HttpResponses.redirectToDot();
+    }
+}
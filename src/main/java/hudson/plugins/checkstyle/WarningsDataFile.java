@@ -0,0 +1,192 @@
+package hudson.plugins.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import hudson.XmlFile;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.checkstyle.parser.Warning;
+import hudson.plugins.checkstyle.parser.WarningColumns;
+import hudson.plugins.checkstyle.parser.WarningIndex;
+import hudson.plugins.checkstyle.parser.WarningIndex.Property;
+
+/**
+ * Stores the warnings of a build in the columnar binary format of {@link WarningColumns} instead of the XML
+ * file. Builds that have been recorded with the XML file are still read from the XML file. If the warnings
+ * can't be stored in the binary format, then the XML file is written. Next to the binary file an index is
+ * stored, so that the warnings of a single module, package, file, category or type can be read without
+ * creating all other warnings.
+ *
+ * @author Ulli Hafner
+ */
+class WarningsDataFile extends XmlFile {
+    private final File binaryFile;
+    private final File indexFile;
+
+    /**
+     * Creates a new instance of {@link WarningsDataFile}.
+     *
+     * @param xmlFile
+     *            the XML file of the warnings
+     * @param binaryFile
+     *            the binary file of the warnings
+     * @param indexFile
+     *            the index of the binary file
+     */
+    WarningsDataFile(final XmlFile xmlFile, final File binaryFile, final File indexFile) {
+        super(xmlFile.getXStream(), xmlFile.getFile());
+
+        this.binaryFile = binaryFile;
+        this.indexFile = indexFile;
+    }
+
+    @Override
+    public boolean exists() {
+        return binaryFile.exists() || super.exists();
+    }
+
+    /**
+     * Reads the warnings from the binary file or, for older builds, from the XML file. The warnings are served
+     * from the {@link WarningsCache} if possible.
+     *
+     * @return the warnings
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    @Override
+    public Object read() throws IOException {
+        File file = binaryFile.exists() ? binaryFile : getFile();
+        WarningsCache cache = WarningsCache.getInstance();
+        FileAnnotation[] cached = cache.get(file);
+        if (cached != null) {
+            return cached;
+        }
+
+        Object annotations = readFile();
+        if (annotations instanceof FileAnnotation[]) {
+            cache.put(file, (FileAnnotation[]) annotations);
+        }
+        return annotations;
+    }
+
+    private Object readFile() throws IOException {
+        if (!binaryFile.exists()) {
+            return super.read();
+        }
+        InputStream input = new BufferedInputStream(new FileInputStream(binaryFile));
+        try {
+            List<Warning> warnings = WarningColumns.read(input);
+            return warnings.toArray(new FileAnnotation[warnings.size()]);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    @Override
+    public void write(final Object object) throws IOException {
+        if (!(object instanceof FileAnnotation[])) {
+            WarningsCache.getInstance().remove(getFile());
+            super.write(object);
+            return;
+        }
+        WarningsCache.getInstance().remove(binaryFile);
+        WarningsCache.getInstance().remove(getFile());
+
+        Collection<FileAnnotation> annotations = Arrays.asList((FileAnnotation[]) object);
+        FileUtils.deleteQuietly(indexFile);
+        if (!WarningColumns.canWrite(annotations)) {
+            FileUtils.deleteQuietly(binaryFile);
+            super.write(object);
+            return;
+        }
+
+        List<Warning> warnings = new ArrayList<Warning>(annotations.size());
+        for (FileAnnotation annotation : annotations) {
+            warnings.add((Warning) annotation);
+        }
+        File temporaryFile = createTemporaryFile(binaryFile);
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+        try {
+            WarningColumns.write(warnings, output);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+        }
+        replace(temporaryFile, binaryFile);
+
+        temporaryFile = createTemporaryFile(indexFile);
+        output = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+        try {
+            WarningIndex.write(warnings, output);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+        }
+        replace(temporaryFile, indexFile);
+    }
+
+    private File createTemporaryFile(final File file) {
+        return new File(file.getParentFile(), file.getName() + ".tmp");
+    }
+
+    private void replace(final File temporaryFile, final File file) throws IOException {
+        FileUtils.deleteQuietly(file);
+        if (!temporaryFile.renameTo(file)) {
+            FileUtils.deleteQuietly(temporaryFile);
+            throw new IOException("Can't rename " + temporaryFile + " to " + file);
+        }
+    }
+
+    /**
+     * Reads the warnings with the specified property value. The value is identified by its hash code, as in the
+     * links to the detail views.
+     *
+     * @param property
+     *            the property
+     * @param hashCode
+     *            the hash code of the property value
+     * @return the warnings, or <code>null</code> if there is no index or no value with the specified hash code
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public FileAnnotation[] readSlice(final Property property, final int hashCode) throws IOException {
+        if (!indexFile.exists() || !binaryFile.exists()) {
+            return null;
+        }
+        BitSet rows;
+        InputStream index = new BufferedInputStream(new FileInputStream(indexFile));
+        try {
+            rows = WarningIndex.findRows(index, property, hashCode);
+        }
+        finally {
+            IOUtils.closeQuietly(index);
+        }
+        if (rows == null) {
+            return null;
+        }
+
+        InputStream input = new BufferedInputStream(new FileInputStream(binaryFile));
+        try {
+            List<Warning> warnings = WarningColumns.read(input, rows);
+            return warnings.toArray(new FileAnnotation[warnings.size()]);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+}
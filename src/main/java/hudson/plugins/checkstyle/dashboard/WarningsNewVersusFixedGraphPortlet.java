@@ -6,10 +6,14 @@ import hudson.plugins.analysis.core.AbstractProjectAction;
 import hudson.plugins.analysis.dashboard.AbstractWarningsGraphPortlet;
 import hudson.plugins.analysis.graph.BuildResultGraph;
 import hudson.plugins.analysis.graph.NewVersusFixedGraph;
+import hudson.plugins.checkstyle.CheckStyleIndex;
 import hudson.plugins.checkstyle.CheckStyleProjectAction;
 import hudson.plugins.checkstyle.Messages;
+import hudson.plugins.checkstyle.TrendGraph;
 import hudson.plugins.view.dashboard.DashboardPortlet;
+import hudson.util.Graph;
 
+import org.apache.commons.lang.math.NumberUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -18,6 +22,9 @@ import org.kohsuke.stapler.DataBoundConstructor;
  * @author Ulli Hafner
  */
 public final class WarningsNewVersusFixedGraphPortlet extends AbstractWarningsGraphPortlet {
+    private static final int DEFAULT_WIDTH = 500;
+    private static final int DEFAULT_HEIGHT = 200;
+
     /**
      * Creates a new instance of {@link WarningsNewVersusFixedGraphPortlet}.
      *
@@ -47,6 +54,18 @@ public final class WarningsNewVersusFixedGraphPortlet extends AbstractWarningsGr
         return "checkstyle";
     }
 
+    /**
+     * Returns the daily trend graph of the jobs of the dashboard. The graph is created from the
+     * {@link CheckStyleIndex}, so the builds of the jobs are not loaded.
+     *
+     * @return the trend graph
+     */
+    public Graph getIndexedGraph() {
+        return CheckStyleIndex.getInstance().createGraph(getDashboard().getJobs(), TrendGraph.Type.NEW_VERSUS_FIXED,
+                NumberUtils.toInt(getDayCountString()), NumberUtils.toInt(getWidth(), DEFAULT_WIDTH),
+                NumberUtils.toInt(getHeight(), DEFAULT_HEIGHT));
+    }
+
     @Override
     protected BuildResultGraph getGraphType() {
         return new NewVersusFixedGraph();
@@ -1,11 +1,18 @@
 package hudson.plugins.checkstyle.dashboard;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import hudson.Extension;
 import hudson.model.Descriptor;
+import hudson.model.Job;
 import hudson.plugins.analysis.core.AbstractProjectAction;
 import hudson.plugins.analysis.dashboard.AbstractWarningsTablePortlet;
+import hudson.plugins.checkstyle.CheckStyleIndex;
 import hudson.plugins.checkstyle.CheckStyleProjectAction;
 import hudson.plugins.checkstyle.Messages;
+import hudson.plugins.checkstyle.TrendStore;
 import hudson.plugins.view.dashboard.DashboardPortlet;
 
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -16,6 +23,8 @@ import org.kohsuke.stapler.DataBoundConstructor;
  * @author Ulli Hafner
  */
 public class WarningsTablePortlet extends AbstractWarningsTablePortlet {
+    private final boolean hideZeroWarningsProjects;
+
     /**
      * Creates a new instance of {@link WarningsTablePortlet}.
      *
@@ -28,6 +37,8 @@ public class WarningsTablePortlet extends AbstractWarningsTablePortlet {
     @DataBoundConstructor
     public WarningsTablePortlet(final String name, final boolean canHideZeroWarningsProjects) {
         super(name, canHideZeroWarningsProjects);
+
+        hideZeroWarningsProjects = canHideZeroWarningsProjects;
     }
 
     @Override
@@ -35,6 +46,48 @@ public class WarningsTablePortlet extends AbstractWarningsTablePortlet {
         return CheckStyleProjectAction.class;
     }
 
+    /**
+     * Returns the jobs that are shown in the table. Jobs without Checkstyle results and, if configured, jobs
+     * without warnings are skipped.
+     *
+     * @param jobs
+     *            the jobs of the dashboard
+     * @return the jobs to show
+     */
+    public List<Job<?, ?>> getIndexedJobs(final Collection<? extends Job<?, ?>> jobs) {
+        List<Job<?, ?>> shown = new ArrayList<Job<?, ?>>();
+        for (Job<?, ?> job : jobs) {
+            TrendStore.Entry totals = getIndexedTotals(job);
+            if (totals != null && (totals.getTotal() > 0 || !hideZeroWarningsProjects)) {
+                shown.add(job);
+            }
+        }
+        return shown;
+    }
+
+    /**
+     * Returns the number of warnings of the latest build of the specified job. The totals are read from the
+     * {@link CheckStyleIndex}, so the builds of the job are not loaded.
+     *
+     * @param job
+     *            the job
+     * @return the totals, or <code>null</code> if the job has no Checkstyle results
+     */
+    public TrendStore.Entry getIndexedTotals(final Job<?, ?> job) {
+        return CheckStyleIndex.getInstance().getTotals(job);
+    }
+
+    /**
+     * Returns the sum of the number of warnings of the latest builds of the specified jobs.
+     *
+     * @param jobs
+     *            the jobs
+     * @return the sum of the totals
+     */
+    public TrendStore.Entry getIndexedTotals(final Collection<? extends Job<?, ?>> jobs) {
+        return CheckStyleIndex.getInstance().getTotals(jobs);
+    }
+
     /**
      * Extension point registration.
      *
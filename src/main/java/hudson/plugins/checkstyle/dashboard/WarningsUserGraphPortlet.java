@@ -1,5 +1,6 @@
 package hudson.plugins.checkstyle.dashboard;
 
+import org.apache.commons.lang.math.NumberUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import hudson.Extension;
@@ -8,9 +9,12 @@ import hudson.plugins.analysis.core.AbstractProjectAction;
 import hudson.plugins.analysis.dashboard.AbstractWarningsGraphPortlet;
 import hudson.plugins.analysis.graph.AnnotationsByUserGraph;
 import hudson.plugins.analysis.graph.BuildResultGraph;
+import hudson.plugins.checkstyle.AuthorGraph;
+import hudson.plugins.checkstyle.AuthorStore;
 import hudson.plugins.checkstyle.CheckStyleProjectAction;
 import hudson.plugins.checkstyle.Messages;
 import hudson.plugins.view.dashboard.DashboardPortlet;
+import hudson.util.Graph;
 
 /**
  * A portlet that shows the warnings of the last build by user and priority.
@@ -18,6 +22,9 @@ import hudson.plugins.view.dashboard.DashboardPortlet;
  * @author Ulli Hafner
  */
 public final class WarningsUserGraphPortlet extends AbstractWarningsGraphPortlet {
+    private static final int DEFAULT_WIDTH = 500;
+    private static final int DEFAULT_HEIGHT = 200;
+
     /**
      * Creates a new instance of {@link WarningsUserGraphPortlet}.
      *
@@ -47,6 +54,18 @@ public final class WarningsUserGraphPortlet extends AbstractWarningsGraphPortlet
         return "checkstyle";
     }
 
+    /**
+     * Returns the graph with the warnings by author of the latest builds of the jobs of the dashboard. The
+     * graph is created from the {@link AuthorStore}, so the warnings of the builds are not loaded.
+     *
+     * @return the graph
+     */
+    public Graph getIndexedGraph() {
+        return new AuthorGraph(AuthorStore.getLastModified(), NumberUtils.toInt(getWidth(), DEFAULT_WIDTH),
+                NumberUtils.toInt(getHeight(), DEFAULT_HEIGHT),
+                AuthorStore.getTotals(getDashboard().getJobs(), NumberUtils.toInt(getDayCountString())));
+    }
+
     @Override
     protected BuildResultGraph getGraphType() {
         return new AnnotationsByUserGraph();
@@ -0,0 +1,281 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.plugins.analysis.core.FilesParser;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.util.ModuleDetector;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.checkstyle.Messages;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Parses all Checkstyle files that match a given Ant file-set pattern. If a
+ * degree of parallelism greater than one is configured, then each matching
+ * file is parsed in a separate task of a {@link ForkJoinPool}. The results of
+ * the individual files are merged in the alphabetical order of the file names
+ * so that the resulting set of warnings does not depend on the scheduling of
+ * the tasks. Otherwise the files are parsed sequentially. Files that have the
+ * same digest as in the previous
+ * build are not parsed at all. The package names of the source files and the
+ * digests of the files are returned together with the warnings so that they
+ * can be reused in the next build. Each matching file is parsed directly,
+ * its name is never used as a pattern, so names with pattern characters like
+ * <code>*</code> or <code>,</code> are parsed as well. Relative file names
+ * in the reports are resolved against the workspace.
+ *
+ * @author Ulli Hafner
+ */
+public class CheckStyleFilesParser extends MasterToSlaveFileCallable<ParsedReports> {
+    private static final long serialVersionUID = -4510268815285312581L;
+
+    /** Prefix of the log messages. */
+    private final String logPrefix;
+    /** Ant file-set pattern of the files to parse. */
+    private final String filePattern;
+    /** The parser to use. */
+    private final CheckStyleParser parser;
+    /** Determines whether module names should be derived from Maven, Ant or OSGi files. */
+    private final boolean shouldDetectModules;
+    /** Determines whether this parser is used in a Maven build. */
+    private final boolean isMavenBuild;
+    /** The maximum number of files that are parsed concurrently. */
+    private final int parallelism;
+    /** The digests of the reports of the previous build, mapped by the absolute names of the reports. */
+    private final HashMap<String, ReportDigest> previousDigests;
+
+    /**
+     * Creates a new instance of {@link CheckStyleFilesParser}.
+     *
+     * @param logPrefix
+     *            prefix of the log messages
+     * @param filePattern
+     *            Ant file-set pattern of the files to parse
+     * @param parser
+     *            the parser to use
+     * @param shouldDetectModules
+     *            determines whether module names should be derived from Maven,
+     *            Ant or OSGi files
+     * @param isMavenBuild
+     *            determines whether this parser is used in a Maven build
+     * @param parallelism
+     *            the maximum number of files that are parsed concurrently, a
+     *            value less than 2 disables the parallel parsing
+     */
+    public CheckStyleFilesParser(final String logPrefix, final String filePattern, final CheckStyleParser parser,
+            final boolean shouldDetectModules, final boolean isMavenBuild, final int parallelism) {
+        this(logPrefix, filePattern, parser, shouldDetectModules, isMavenBuild, parallelism,
+                Collections.<String, ReportDigest>emptyMap());
+    }
+
+    /**
+     * Creates a new instance of {@link CheckStyleFilesParser}.
+     *
+     * @param logPrefix
+     *            prefix of the log messages
+     * @param filePattern
+     *            Ant file-set pattern of the files to parse
+     * @param parser
+     *            the parser to use
+     * @param shouldDetectModules
+     *            determines whether module names should be derived from Maven,
+     *            Ant or OSGi files
+     * @param isMavenBuild
+     *            determines whether this parser is used in a Maven build
+     * @param parallelism
+     *            the maximum number of files that are parsed concurrently, a
+     *            value less than 2 disables the parallel parsing
+     * @param previousDigests
+     *            the digests of the reports of the previous build, reports
+     *            with the same digest are skipped
+     */
+    public CheckStyleFilesParser(final String logPrefix, final String filePattern, final CheckStyleParser parser,
+            final boolean shouldDetectModules, final boolean isMavenBuild, final int parallelism,
+            final Map<String, ReportDigest> previousDigests) {
+        super();
+
+        this.logPrefix = logPrefix;
+        this.filePattern = filePattern;
+        this.parser = parser;
+        this.shouldDetectModules = shouldDetectModules;
+        this.isMavenBuild = isMavenBuild;
+        this.parallelism = parallelism;
+        this.previousDigests = new HashMap<String, ReportDigest>(previousDigests);
+    }
+
+    @Override
+    public ParsedReports invoke(final File workspace, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        Map<String, ReportDigest> digests = new TreeMap<String, ReportDigest>();
+        Set<String> skippedReports = new TreeSet<String>();
+        List<String> reportNames = new ArrayList<String>();
+
+        ParserResult result;
+        String[] fileNames = findFiles(workspace);
+        if (fileNames.length == 0) {
+            result = createFilesParser(filePattern).invoke(workspace, channel);
+        }
+        else {
+            List<ReportParser> reportParsers = new ArrayList<ReportParser>();
+            ModuleDetector moduleDetector = null;
+            for (String fileName : fileNames) {
+                File report = new File(workspace, fileName);
+                String reportName = report.getAbsolutePath();
+                String digest = Util.getDigestOf(report);
+                reportNames.add(reportName);
+
+                ReportDigest previous = previousDigests.get(reportName);
+                if (previous != null && previous.getDigest().equals(digest)) {
+                    skippedReports.add(reportName);
+                    digests.put(reportName, previous);
+                }
+                else {
+                    if (moduleDetector == null && (shouldDetectModules || isMavenBuild)) {
+                        moduleDetector = new ModuleDetector(workspace);
+                    }
+                    String moduleName = moduleDetector == null
+                            ? StringUtils.EMPTY : moduleDetector.guessModuleName(reportName);
+                    reportParsers.add(new ReportParser(workspace, report, moduleName, reportNames.size() - 1,
+                            digest));
+                }
+            }
+            result = parse(workspace, reportParsers);
+            for (ReportParser reportParser : reportParsers) {
+                digests.put(reportParser.report.getAbsolutePath(), reportParser.getDigest());
+            }
+        }
+        parser.getPackageNames().retainUsed();
+
+        return new ParsedReports(result, parser.getPackageNames(), reportNames, digests, skippedReports,
+                parser.getFailFastGate());
+    }
+
+    private ParserResult parse(final File workspace, final List<ReportParser> reportParsers)
+            throws IOException, InterruptedException {
+        ParserResult merged = new ParserResult(new FilePath(workspace));
+        if (parallelism < 2 || reportParsers.size() < 2) {
+            for (ReportParser reportParser : reportParsers) {
+                merged.addProject(reportParser.call());
+            }
+            return merged;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, reportParsers.size()));
+        try {
+            List<Future<ParserResult>> results = new ArrayList<Future<ParserResult>>(reportParsers.size());
+            for (ReportParser reportParser : reportParsers) {
+                results.add(pool.submit(reportParser));
+            }
+
+            for (Future<ParserResult> result : results) {
+                merged.addProject(result.get());
+            }
+            return merged;
+        }
+        catch (ExecutionException exception) {
+            throw new IOException(exception.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the workspace relative names of all files that match the file
+     * pattern. The names are sorted alphabetically.
+     *
+     * @param workspace
+     *            the workspace to scan
+     * @return the matching files
+     */
+    private String[] findFiles(final File workspace) {
+        String[] fileNames = Util.createFileSet(workspace, filePattern).getDirectoryScanner().getIncludedFiles();
+        Arrays.sort(fileNames);
+        return fileNames;
+    }
+
+    /**
+     * Creates a files parser for the specified pattern.
+     *
+     * @param pattern
+     *            Ant file-set pattern of the files to parse
+     * @return the files parser
+     */
+    private FilesParser createFilesParser(final String pattern) {
+        return new FilesParser(logPrefix, pattern, parser, shouldDetectModules, isMavenBuild);
+    }
+
+    /**
+     * Parses a single Checkstyle file of the workspace and marks the warnings
+     * with the index of the file in the list of reports. Relative file names
+     * of the warnings are resolved against the workspace.
+     */
+    private final class ReportParser implements Callable<ParserResult> {
+        private final File workspace;
+        private final File report;
+        private final String moduleName;
+        private final int reportIndex;
+        private final String digest;
+        private long parseTime;
+
+        ReportParser(final File workspace, final File report, final String moduleName,
+                final int reportIndex, final String digest) {
+            this.workspace = workspace;
+            this.report = report;
+            this.moduleName = moduleName;
+            this.reportIndex = reportIndex;
+            this.digest = digest;
+        }
+
+        @Override
+        public ParserResult call() {
+            long start = System.currentTimeMillis();
+            ParserResult result = new ParserResult(new FilePath(workspace));
+            try {
+                Collection<FileAnnotation> annotations = parser.parse(report, moduleName);
+                for (FileAnnotation annotation : annotations) {
+                    if (annotation instanceof Warning) {
+                        ((Warning)annotation).setReportIndex(reportIndex);
+                    }
+                }
+                result.addAnnotations(annotations);
+                if (StringUtils.isNotBlank(moduleName)) {
+                    result.addModule(moduleName);
+                }
+            }
+            catch (InvocationTargetException exception) {
+                result.addErrorMessage(Messages.Checkstyle_FilesParser_Error(report.getAbsolutePath())
+                        + "\n\n" + ExceptionUtils.getStackTrace(exception));
+            }
+            parseTime = System.currentTimeMillis() - start;
+            return result;
+        }
+
+        ReportDigest getDigest() {
+            return new ReportDigest(digest, parseTime);
+        }
+    }
+}
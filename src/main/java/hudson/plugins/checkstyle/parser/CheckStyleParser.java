@@ -1,23 +1,42 @@
 package hudson.plugins.checkstyle.parser;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.xml.sax.SAXException;
 
 import hudson.plugins.analysis.core.AbstractAnnotationParser;
-import hudson.plugins.analysis.util.PackageDetectors;
 import hudson.plugins.analysis.util.SecureDigester;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
 /**
- * A parser for Checkstyle XML files.
+ * A parser for Checkstyle XML files. The parser either builds the complete
+ * document tree of the Checkstyle file using a {@link SecureDigester} or reads
+ * the file as a stream of StAX events. In streaming mode each {@link Warning}
+ * is created as soon as the corresponding <code>error</code> element has been
+ * read so that the required memory depends on the number of warnings only.
+ * Checkstyle files that are compressed with gzip are decompressed while reading.
  *
  * @author Ulli Hafner
  */
@@ -25,11 +44,45 @@ public class CheckStyleParser extends AbstractAnnotationParser {
     /** Unique identifier of this class. */
     private static final long serialVersionUID = -8705621875291182458L;
 
+    private static final String ROOT_ELEMENT = "checkstyle";
+    private static final String FILE_ELEMENT = "file";
+    private static final String ERROR_ELEMENT = "error";
+
+    /** First bytes of a file compressed with gzip. */
+    private static final byte[] GZIP_MAGIC = {(byte)0x1f, (byte)0x8b};
+    /** First bytes of a file compressed with Zstandard. */
+    private static final byte[] ZSTD_MAGIC = {(byte)0x28, (byte)0xb5, (byte)0x2f, (byte)0xfd};
+
+    /** Maps the lower case severities of Checkstyle to the priorities of the plug-in. */
+    private static final Map<String, Priority> PRIORITIES = createPriorities();
+    /** Resolution of an error without source. */
+    private static final Check NO_SOURCE = new Check(null, null);
+
+    /** Determines whether to use the StAX streaming parser. */
+    private final boolean streaming;
+    /** The encoding of the source files. */
+    private final String sourceEncoding;
+    /** Package names of the source files of the previous build. */
+    private final PackageNameCache packageNames;
+    /** Counts the warnings and decides which warnings are kept. */
+    private final FailFastGate failFastGate;
+    /** Canonical instances of the strings of all warnings created by this parser. */
+    private final StringPool strings = new StringPool();
+    /** Maps the sources of the errors to the already resolved categories and types. */
+    private final ConcurrentHashMap<String, Check> checks = new ConcurrentHashMap<String, Check>();
+    /** Determines whether the context hash codes of the batch mode match the hash codes of the parser API. */
+    private transient volatile boolean isBatchModeVerified;
+
     /**
      * Creates a new instance of {@link CheckStyleParser}.
      */
     public CheckStyleParser() {
         super(StringUtils.EMPTY);
+
+        sourceEncoding = StringUtils.EMPTY;
+        streaming = false;
+        packageNames = new PackageNameCache();
+        failFastGate = new FailFastGate();
     }
 
     /**
@@ -39,35 +92,98 @@ public class CheckStyleParser extends AbstractAnnotationParser {
      *            the default encoding to be used when reading and parsing files
      */
     public CheckStyleParser(final String defaultEncoding) {
+        this(defaultEncoding, false);
+    }
+
+    /**
+     * Creates a new instance of {@link CheckStyleParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param streaming
+     *            determines whether to read the Checkstyle files with the StAX
+     *            streaming parser rather than building the whole document tree
+     */
+    public CheckStyleParser(final String defaultEncoding, final boolean streaming) {
+        this(defaultEncoding, streaming, new PackageNameCache());
+    }
+
+    /**
+     * Creates a new instance of {@link CheckStyleParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param streaming
+     *            determines whether to read the Checkstyle files with the StAX
+     *            streaming parser rather than building the whole document tree
+     * @param packageNames
+     *            the package names of the source files of the previous build
+     */
+    public CheckStyleParser(final String defaultEncoding, final boolean streaming,
+            final PackageNameCache packageNames) {
+        this(defaultEncoding, streaming, packageNames, new FailFastGate());
+    }
+
+    /**
+     * Creates a new instance of {@link CheckStyleParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param streaming
+     *            determines whether to read the Checkstyle files with the StAX
+     *            streaming parser rather than building the whole document tree
+     * @param packageNames
+     *            the package names of the source files of the previous build
+     * @param failFastGate
+     *            the gate that counts the warnings and decides which warnings are kept
+     */
+    public CheckStyleParser(final String defaultEncoding, final boolean streaming,
+            final PackageNameCache packageNames, final FailFastGate failFastGate) {
         super(defaultEncoding);
+
+        sourceEncoding = defaultEncoding;
+        this.streaming = streaming;
+        this.packageNames = packageNames;
+        this.failFastGate = failFastGate;
+    }
+
+    /**
+     * Returns whether the StAX streaming parser is used to read the Checkstyle files.
+     *
+     * @return <code>true</code> if the files are read as a stream of events,
+     *         <code>false</code> if the whole document tree is built
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Returns the package names of the source files that have been read by this parser.
+     *
+     * @return the package names
+     */
+    public PackageNameCache getPackageNames() {
+        return packageNames;
+    }
+
+    /**
+     * Returns the gate that counts the warnings that have been read by this parser.
+     *
+     * @return the fail-fast gate
+     */
+    public FailFastGate getFailFastGate() {
+        return failFastGate;
     }
 
     @Override
     public Collection<FileAnnotation> parse(final InputStream file, final String moduleName) throws InvocationTargetException {
         try {
-            SecureDigester digester = new SecureDigester(CheckStyleParser.class);
-
-            String rootXPath = "checkstyle";
-            digester.addObjectCreate(rootXPath, CheckStyle.class);
-            digester.addSetProperties(rootXPath);
-
-            String fileXPath = "checkstyle/file";
-            digester.addObjectCreate(fileXPath, hudson.plugins.checkstyle.parser.File.class);
-            digester.addSetProperties(fileXPath);
-            digester.addSetNext(fileXPath, "addFile", hudson.plugins.checkstyle.parser.File.class.getName());
-
-            String bugXPath = "checkstyle/file/error";
-            digester.addObjectCreate(bugXPath, Error.class);
-            digester.addSetProperties(bugXPath);
-            digester.addSetNext(bugXPath, "addError", Error.class.getName());
-
-            CheckStyle module;
-            module = (CheckStyle)digester.parse(new InputStreamReader(file, "UTF-8"));
-            if (module == null) {
-                throw new SAXException("Input stream is not a Checkstyle file.");
+            InputStream input = decompress(file);
+            if (streaming) {
+                return parseStream(input, moduleName);
             }
 
-            return convert(module, moduleName);
+            return convert(parseModel(input), moduleName);
         }
         catch (IOException exception) {
             throw new InvocationTargetException(exception);
@@ -75,6 +191,190 @@ public class CheckStyleParser extends AbstractAnnotationParser {
         catch (SAXException exception) {
             throw new InvocationTargetException(exception);
         }
+        catch (XMLStreamException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InvocationTargetException(exception);
+        }
+    }
+
+    /**
+     * Reads the whole document tree of the Checkstyle file using a {@link SecureDigester}.
+     *
+     * @param input
+     *            the uncompressed Checkstyle file
+     * @return the document tree
+     * @throws IOException
+     *             if the file could not be read
+     * @throws SAXException
+     *             if the file is not a Checkstyle file
+     */
+    CheckStyle parseModel(final InputStream input) throws IOException, SAXException {
+        SecureDigester digester = new SecureDigester(CheckStyleParser.class);
+
+        String rootXPath = "checkstyle";
+        digester.addObjectCreate(rootXPath, CheckStyle.class);
+        digester.addSetProperties(rootXPath);
+
+        String fileXPath = "checkstyle/file";
+        digester.addObjectCreate(fileXPath, hudson.plugins.checkstyle.parser.File.class);
+        digester.addSetProperties(fileXPath);
+        digester.addSetNext(fileXPath, "addFile", hudson.plugins.checkstyle.parser.File.class.getName());
+
+        String bugXPath = "checkstyle/file/error";
+        digester.addObjectCreate(bugXPath, Error.class);
+        digester.addSetProperties(bugXPath);
+        digester.addSetNext(bugXPath, "addError", Error.class.getName());
+
+        CheckStyle module;
+        module = (CheckStyle)digester.parse(new InputStreamReader(input, "UTF-8"));
+        if (module == null) {
+            throw new SAXException("Input stream is not a Checkstyle file.");
+        }
+        return module;
+    }
+
+    /**
+     * Returns a stream that provides the uncompressed content of the
+     * specified Checkstyle file. Files compressed with gzip are detected by
+     * their magic number and decompressed while reading, all other files are
+     * read as they are.
+     *
+     * @param file
+     *            the Checkstyle file
+     * @return the uncompressed content of the file
+     * @throws IOException
+     *             if the file could not be read or is compressed with an
+     *             unsupported format
+     */
+    private InputStream decompress(final InputStream file) throws IOException {
+        BufferedInputStream stream = new BufferedInputStream(file);
+        stream.mark(ZSTD_MAGIC.length);
+        byte[] magic = new byte[ZSTD_MAGIC.length];
+        int length = IOUtils.read(stream, magic);
+        stream.reset();
+
+        if (startsWith(magic, length, GZIP_MAGIC)) {
+            return new GZIPInputStream(stream);
+        }
+        if (startsWith(magic, length, ZSTD_MAGIC)) {
+            throw new IOException("Checkstyle reports compressed with Zstandard are not supported, please use gzip.");
+        }
+        return stream;
+    }
+
+    private boolean startsWith(final byte[] content, final int length, final byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (content[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the Checkstyle file as a stream of StAX events and creates the
+     * warnings while reading. Only the elements <code>checkstyle/file</code>
+     * and <code>checkstyle/file/error</code> are evaluated, all other elements
+     * are skipped.
+     *
+     * @param file
+     *            the Checkstyle file
+     * @param moduleName
+     *            name of the maven module
+     * @return the created warnings
+     * @throws IOException
+     *             if the file could not be read
+     * @throws XMLStreamException
+     *             if the file is not well formed
+     * @throws SAXException
+     *             if the file is not a Checkstyle file
+     * @throws InterruptedException
+     *             if the source files could not be read
+     * @throws InvocationTargetException
+     *             if a source file could not be processed
+     */
+    private Collection<FileAnnotation> parseStream(final InputStream file, final String moduleName)
+            throws IOException, XMLStreamException, SAXException, InterruptedException, InvocationTargetException {
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(new InputStreamReader(file, "UTF-8"));
+        try {
+            ArrayList<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+            WarningsByFile warningsByFile = new WarningsByFile(this, packageNames, strings);
+
+            Error error = new Error();
+            int depth = 0;
+            String fileName = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String element = reader.getLocalName();
+                    if (depth == 1 && !ROOT_ELEMENT.equals(element)) {
+                        throw new SAXException("Input stream is not a Checkstyle file.");
+                    }
+                    else if (depth == 2 && FILE_ELEMENT.equals(element)) {
+                        String name = reader.getAttributeValue(null, "name");
+                        if (name != null && isValidWarning(name)) {
+                            fileName = strings.intern(name);
+                        }
+                    }
+                    else if (depth == 3 && fileName != null && ERROR_ELEMENT.equals(element)) {
+                        readError(reader, error);
+                        Warning warning = createWarning(error, fileName, moduleName);
+                        if (warning != null) {
+                            annotations.add(warning);
+                            warningsByFile.add(fileName, warning);
+                        }
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2) {
+                        fileName = null;
+                    }
+                    depth--;
+                }
+            }
+            warningsByFile.resolve();
+            return annotations;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates a new StAX input factory that neither reads DTDs nor resolves
+     * external entities. This provides the same protection against XXE attacks
+     * as the {@link SecureDigester}.
+     *
+     * @return the input factory
+     */
+    private XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Reads the attributes of the current <code>error</code> element.
+     *
+     * @param reader
+     *            the reader that is positioned at an <code>error</code> element
+     * @param error
+     *            the error to fill with the attribute values
+     */
+    private void readError(final XMLStreamReader reader, final Error error) {
+        error.setSource(reader.getAttributeValue(null, "source"));
+        error.setSeverity(reader.getAttributeValue(null, "severity"));
+        error.setMessage(reader.getAttributeValue(null, "message"));
+        error.setLine(NumberUtils.toInt(reader.getAttributeValue(null, "line")));
+        error.setColumn(NumberUtils.toInt(reader.getAttributeValue(null, "column")));
     }
 
     /**
@@ -85,54 +385,188 @@ public class CheckStyleParser extends AbstractAnnotationParser {
      * @param moduleName
      *            name of the maven module
      * @return a maven module of the annotations API
+     * @throws InterruptedException
+     *             if the source files could not be read
+     * @throws InvocationTargetException
+     *             if a source file could not be processed
      */
-    private Collection<FileAnnotation> convert(final CheckStyle collection, final String moduleName) {
+    Collection<FileAnnotation> convert(final CheckStyle collection, final String moduleName)
+            throws InterruptedException, InvocationTargetException {
         ArrayList<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        WarningsByFile warningsByFile = new WarningsByFile(this, packageNames, strings);
 
         for (hudson.plugins.checkstyle.parser.File file : collection.getFiles()) {
-            if (isValidWarning(file)) {
-                String packageName = PackageDetectors.detectPackageName(file.getName());
+            if (isValidWarning(file.getName())) {
+                String fileName = strings.intern(file.getName());
                 for (Error error : file.getErrors()) {
-                    Priority priority;
-                    if ("error".equalsIgnoreCase(error.getSeverity())) {
-                        priority = Priority.HIGH;
+                    Warning warning = createWarning(error, fileName, moduleName);
+                    if (warning != null) {
+                        annotations.add(warning);
+                        warningsByFile.add(fileName, warning);
                     }
-                    else if ("warning".equalsIgnoreCase(error.getSeverity())) {
-                        priority = Priority.NORMAL;
-                    }
-                    else if ("info".equalsIgnoreCase(error.getSeverity())) {
-                        priority = Priority.LOW;
-                    }
-                    else {
-                        continue; // ignore
-                    }
-                    String source = error.getSource();
-                    String type = StringUtils.substringAfterLast(source, ".");
-                    String category = StringUtils.substringAfterLast(StringUtils.substringBeforeLast(source, "."), ".");
-
-                    Warning warning = new Warning(priority, error.getMessage(), StringUtils.capitalize(category),
-                            type, error.getLine(), error.getLine());
-                    warning.setModuleName(moduleName);
-                    warning.setFileName(file.getName());
-                    warning.setPackageName(packageName);
-                    warning.setColumnPosition(error.getColumn());
-                    warning.setContextHashCode(createContextHashCode(file.getName(), error.getLine(), type));
-                    annotations.add(warning);
                 }
             }
         }
+        warningsByFile.resolve();
         return annotations;
     }
 
+    /**
+     * Creates a warning for the specified Checkstyle error. The package name
+     * and the context hash code of the warning are set later on when all
+     * source files are read.
+     *
+     * @param error
+     *            the error to convert
+     * @param fileName
+     *            the name of the file that contains the error
+     * @param moduleName
+     *            name of the maven module
+     * @return the warning or <code>null</code> if the severity of the error is
+     *         not supported or if the fail-fast gate keeps the count only
+     */
+    private Warning createWarning(final Error error, final String fileName, final String moduleName) {
+        Priority priority = getPriority(error.getSeverity());
+        if (priority == null) {
+            return null; // ignore
+        }
+        Check check = getCheck(error.getSource());
+
+        Warning warning = new Warning(priority, strings.intern(error.getMessage()),
+                check.getCategory(), check.getType(), error.getLine(), error.getLine());
+        warning.setFileName(fileName);
+        if (!failFastGate.accept(warning)) {
+            return null;
+        }
+        warning.setModuleName(strings.intern(moduleName));
+        warning.setColumnPosition(error.getColumn());
+        return warning;
+    }
+
+    /**
+     * Sets the context hash codes of all warnings of the specified source
+     * file. The source file is read only once for all warnings. The first time
+     * this method is called for a readable file the result is compared with the
+     * hash code of {@link #createContextHashCode(String, int, String)}: if the
+     * hash codes do not match, then the context hash codes are computed for each
+     * warning individually so that the fingerprints of existing builds remain
+     * valid. Files that can't be read (e.g. if the sources are not available on
+     * the agent) are always handled individually and do not verify the batch
+     * mode.
+     *
+     * @param fileName
+     *            the name of the source file
+     * @param warnings
+     *            the warnings of the source file
+     */
+    void setContextHashCodes(final String fileName, final List<Warning> warnings) {
+        ContextHashCodes hashCodes = new ContextHashCodes(fileName, sourceEncoding,
+                ContextHashCodes.getLines(warnings));
+        if (!isBatchModeVerified) {
+            Warning first = warnings.get(0);
+            int expected = createContextHashCode(fileName, first.getPrimaryLineNumber(), first.getType());
+            if (!hashCodes.isReadable()
+                    || hashCodes.get(first.getPrimaryLineNumber(), first.getType()) != expected) {
+                for (Warning warning : warnings) {
+                    warning.setContextHashCode(
+                            createContextHashCode(fileName, warning.getPrimaryLineNumber(), warning.getType()));
+                }
+                return;
+            }
+            isBatchModeVerified = true;
+        }
+        for (Warning warning : warnings) {
+            warning.setContextHashCode(hashCodes.get(warning.getPrimaryLineNumber(), warning.getType()));
+        }
+    }
+
+    /**
+     * Returns the priority for the specified Checkstyle severity. The severity
+     * is compared case insensitive, the usual lower case severities are
+     * resolved without creating any objects.
+     *
+     * @param severity
+     *            the severity of the error
+     * @return the priority or <code>null</code> if the severity is not supported
+     */
+    private Priority getPriority(final String severity) {
+        if (severity == null) {
+            return null;
+        }
+        Priority priority = PRIORITIES.get(severity);
+        if (priority == null) {
+            return PRIORITIES.get(severity.toLowerCase(Locale.ENGLISH));
+        }
+        return priority;
+    }
+
+    /**
+     * Returns the category and type of the specified source. The source is
+     * split only the first time it is found, afterwards the cached values are
+     * returned.
+     *
+     * @param source
+     *            the fully qualified class name of the check, e.g.
+     *            <code>com.puppycrawl.tools.checkstyle.checks.javadoc.JavadocMethodCheck</code>
+     * @return the category and type of the check
+     */
+    private Check getCheck(final String source) {
+        if (source == null) {
+            return NO_SOURCE;
+        }
+        Check check = checks.get(source);
+        if (check == null) {
+            String type = StringUtils.substringAfterLast(source, ".");
+            String category = StringUtils.substringAfterLast(StringUtils.substringBeforeLast(source, "."), ".");
+            check = new Check(strings.intern(StringUtils.capitalize(category)), strings.intern(type));
+
+            Check existing = checks.putIfAbsent(source, check);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return check;
+    }
+
+    private static Map<String, Priority> createPriorities() {
+        Map<String, Priority> priorities = new HashMap<String, Priority>();
+        priorities.put("error", Priority.HIGH);
+        priorities.put("warning", Priority.NORMAL);
+        priorities.put("info", Priority.LOW);
+        return Collections.unmodifiableMap(priorities);
+    }
+
     /**
      * Returns <code>true</code> if this warning is valid or <code>false</code>
      * if the warning can't be processed by the checkstyle plug-in.
      *
-     * @param file the file to check
+     * @param fileName the name of the file to check
      * @return <code>true</code> if this warning is valid
      */
-    private boolean isValidWarning(final hudson.plugins.checkstyle.parser.File file) {
-        return !file.getName().endsWith("package.html");
+    private boolean isValidWarning(final String fileName) {
+        return !fileName.endsWith("package.html");
     }
-}
 
+    /**
+     * The category and type of a Checkstyle check.
+     */
+    private static final class Check implements Serializable {
+        private static final long serialVersionUID = 2446311437211838566L;
+
+        private final String category;
+        private final String type;
+
+        Check(final String category, final String type) {
+            this.category = category;
+            this.type = type;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+/**
+ * Computes the context hash codes of several warnings of the same source file
+ * while reading the file only once. The context of a warning consists of the
+ * warning line and the three lines before and four lines after it. The hash
+ * codes are the same as those of
+ * {@link hudson.plugins.analysis.core.AbstractAnnotationParser}, which reads
+ * the source file again for every single warning.
+ *
+ * @author Ulli Hafner
+ */
+class ContextHashCodes {
+    /** Number of lines before and after the warning line to consider. */
+    private static final int LINES_LOOK_AHEAD = 3;
+    private static final int BUFFER_SIZE = 1000;
+
+    private final Map<Integer, Integer> contextByLine = new HashMap<Integer, Integer>();
+    private final boolean isReadable;
+
+    /**
+     * Reads the specified file and computes the hash codes of the contexts
+     * of the specified lines.
+     *
+     * @param fileName
+     *            the name of the source file
+     * @param encoding
+     *            the encoding of the source file, if blank the default encoding of the platform is used
+     * @param lines
+     *            the lines of the warnings
+     */
+    ContextHashCodes(final String fileName, final String encoding, final SortedSet<Integer> lines) {
+        isReadable = read(fileName, encoding, lines);
+    }
+
+    private boolean read(final String fileName, final String encoding, final SortedSet<Integer> lines) {
+        if (lines.isEmpty()) {
+            return true;
+        }
+
+        BufferedReader reader = null;
+        try {
+            Charset charset = StringUtils.isBlank(encoding) ? Charset.defaultCharset() : Charset.forName(encoding);
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), charset));
+
+            Map<Integer, StringBuilder> contexts = new HashMap<Integer, StringBuilder>();
+            for (Integer line : lines) {
+                contexts.put(line, new StringBuilder(BUFFER_SIZE));
+            }
+
+            int lastIndex = lines.last() + LINES_LOOK_AHEAD + 1;
+            String currentLine = reader.readLine();
+            for (int i = 0; currentLine != null && i <= lastIndex; i++) {
+                // every warning line in [i - 4, i + 3] contains the current line in its context
+                for (Integer line : lines.subSet(i - LINES_LOOK_AHEAD - 1, i + LINES_LOOK_AHEAD + 1)) {
+                    contexts.get(line).append(currentLine);
+                }
+                currentLine = reader.readLine();
+            }
+
+            for (Map.Entry<Integer, StringBuilder> context : contexts.entrySet()) {
+                contextByLine.put(context.getKey(), context.getValue().toString().hashCode());
+            }
+            return true;
+        }
+        catch (IOException exception) {
+            return false;
+        }
+        catch (IllegalArgumentException exception) { // unsupported encoding
+            return false;
+        }
+        finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Returns whether the source file could be read.
+     *
+     * @return <code>true</code> if the file has been read, <code>false</code> otherwise
+     */
+    boolean isReadable() {
+        return isReadable;
+    }
+
+    /**
+     * Returns the context hash code of a warning.
+     *
+     * @param line
+     *            the line of the warning, must be one of the lines specified in the constructor
+     * @param type
+     *            the type of the warning
+     * @return the context hash code
+     */
+    int get(final int line, final String type) {
+        HashCodeBuilder builder = new HashCodeBuilder();
+        if (isReadable) {
+            builder.append(contextByLine.get(line).intValue());
+        }
+        builder.append(type);
+        return builder.toHashCode();
+    }
+
+    /**
+     * Returns the lines of the specified warnings.
+     *
+     * @param warnings
+     *            the warnings
+     * @return the lines of the warnings, sorted in ascending order
+     */
+    static SortedSet<Integer> getLines(final Iterable<Warning> warnings) {
+        TreeSet<Integer> lines = new TreeSet<Integer>();
+        for (Warning warning : warnings) {
+            lines.add(warning.getPrimaryLineNumber());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,184 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
+import hudson.plugins.analysis.core.Thresholds;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Evaluates the thresholds for the total number of warnings that let a build
+ * fail while the Checkstyle reports are parsed. As soon as one of the
+ * thresholds is exceeded, the build will fail anyway: from then on only the
+ * number of warnings is counted and at most {@link #SAMPLE_SIZE} additional
+ * warnings are kept as a sample. Each priority is counted individually.
+ * Duplicate warnings, i.e. warnings with the same priority, file, line, type
+ * and message, are counted only once, just like the duplicates are removed
+ * from the parsed result. So the gate never triggers earlier than the
+ * evaluation of the thresholds after the build. Once the gate has been
+ * triggered, the duplicates are not tracked anymore, so that the memory of
+ * the gate stays bounded: the counters then include the duplicates of the
+ * remaining warnings and are an upper bound of the number of warnings.
+ *
+ * @author Ulli Hafner
+ */
+public class FailFastGate implements Serializable {
+    private static final long serialVersionUID = -6418427426722478317L;
+
+    /** Maximum number of warnings that are kept after the gate has been triggered. */
+    public static final int SAMPLE_SIZE = 100;
+
+    private static final int UNDEFINED = -1;
+    private static final long FINGERPRINT_PRIME = 1000003;
+
+    private final int failedTotalAll;
+    private final int failedTotalHigh;
+    private final int failedTotalNormal;
+    private final int failedTotalLow;
+
+    private final AtomicInteger all = new AtomicInteger();
+    private final AtomicInteger high = new AtomicInteger();
+    private final AtomicInteger normal = new AtomicInteger();
+    private final AtomicInteger low = new AtomicInteger();
+    private final AtomicInteger sample = new AtomicInteger();
+    private final AtomicBoolean isTriggered = new AtomicBoolean();
+    /** Fingerprints of the counted warnings, used to skip duplicates until the gate is triggered. */
+    private final Set<Long> fingerprints = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    /**
+     * Creates a new instance of {@link FailFastGate} that is never triggered.
+     */
+    public FailFastGate() {
+        failedTotalAll = UNDEFINED;
+        failedTotalHigh = UNDEFINED;
+        failedTotalNormal = UNDEFINED;
+        failedTotalLow = UNDEFINED;
+    }
+
+    /**
+     * Creates a new instance of {@link FailFastGate} that uses the thresholds
+     * for the total number of warnings that let a build fail.
+     *
+     * @param thresholds
+     *            the thresholds of the plug-in
+     */
+    public FailFastGate(final Thresholds thresholds) {
+        failedTotalAll = toThreshold(thresholds.failedTotalAll);
+        failedTotalHigh = toThreshold(thresholds.failedTotalHigh);
+        failedTotalNormal = toThreshold(thresholds.failedTotalNormal);
+        failedTotalLow = toThreshold(thresholds.failedTotalLow);
+    }
+
+    private static int toThreshold(final String threshold) {
+        String value = StringUtils.trim(threshold);
+        if (NumberUtils.isDigits(value)) {
+            return NumberUtils.toInt(value, UNDEFINED);
+        }
+        return UNDEFINED;
+    }
+
+    private boolean isEnabled() {
+        return failedTotalAll != UNDEFINED || failedTotalHigh != UNDEFINED
+                || failedTotalNormal != UNDEFINED || failedTotalLow != UNDEFINED;
+    }
+
+    /**
+     * Counts the specified warning and returns whether the warning should be
+     * kept. A duplicate of a warning that already has been counted is kept
+     * without counting it again.
+     *
+     * @param warning
+     *            the warning
+     * @return <code>true</code> if the warning should be kept,
+     *         <code>false</code> if the warning has been counted only
+     */
+    public boolean accept(final Warning warning) {
+        if (!isEnabled()) {
+            return true;
+        }
+        if (!isTriggered.get() && !fingerprints.add(getFingerprint(warning))) {
+            return true;
+        }
+
+        Priority priority = warning.getPriority();
+        boolean exceeded = isExceeded(all.incrementAndGet(), failedTotalAll);
+        if (priority == Priority.HIGH) {
+            exceeded |= isExceeded(high.incrementAndGet(), failedTotalHigh);
+        }
+        else if (priority == Priority.NORMAL) {
+            exceeded |= isExceeded(normal.incrementAndGet(), failedTotalNormal);
+        }
+        else {
+            exceeded |= isExceeded(low.incrementAndGet(), failedTotalLow);
+        }
+
+        if (exceeded && !isTriggered.getAndSet(true)) {
+            fingerprints.clear();
+        }
+        return !isTriggered.get() || sample.incrementAndGet() <= SAMPLE_SIZE;
+    }
+
+    /**
+     * Returns a 64 bit hash of the properties that identify duplicate
+     * warnings.
+     */
+    private static long getFingerprint(final Warning warning) {
+        long fingerprint = warning.getPriority().ordinal();
+        fingerprint = fingerprint * FINGERPRINT_PRIME + hashCode(warning.getFileName());
+        fingerprint = fingerprint * FINGERPRINT_PRIME + warning.getPrimaryLineNumber();
+        fingerprint = fingerprint * FINGERPRINT_PRIME + hashCode(warning.getType());
+        fingerprint = fingerprint * FINGERPRINT_PRIME + hashCode(warning.getCategory());
+        return fingerprint * FINGERPRINT_PRIME + hashCode(warning.getMessage());
+    }
+
+    private static int hashCode(final String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private boolean isExceeded(final int count, final int threshold) {
+        return threshold != UNDEFINED && count > threshold;
+    }
+
+    /**
+     * Returns whether one of the thresholds has been exceeded.
+     *
+     * @return <code>true</code> if the build will fail, <code>false</code> otherwise
+     */
+    public boolean isTriggered() {
+        return isTriggered.get();
+    }
+
+    /**
+     * Returns the number of counted warnings with the specified priority.
+     *
+     * @param priority
+     *            the priority
+     * @return the number of warnings
+     */
+    public int getNumberOfWarnings(final Priority priority) {
+        if (priority == Priority.HIGH) {
+            return high.get();
+        }
+        else if (priority == Priority.NORMAL) {
+            return normal.get();
+        }
+        return low.get();
+    }
+
+    /**
+     * Returns a summary of the counted warnings.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        return String.format("Fail-fast quality gate exceeded: %d warnings (%d high, %d normal, %d low), "
+                + "kept a sample of the warnings only", all.get(), high.get(), normal.get(), low.get());
+    }
+}
@@ -0,0 +1,164 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.XmlFile;
+import hudson.plugins.analysis.util.PackageDetectors;
+
+/**
+ * Caches the package names of source files. An entry is valid as long as the
+ * size and the modification time of the source file do not change. The cache
+ * is loaded from the job directory on the controller, transferred to the agent
+ * with the parser and returned with the parsed reports. The returned cache
+ * contains only the entries of the files that were referenced in the current
+ * build, so entries of deleted or renamed files are dropped automatically.
+ *
+ * @author Ulli Hafner
+ */
+public class PackageNameCache implements Serializable {
+    private static final long serialVersionUID = 6022497007622520357L;
+    private static final Logger LOGGER = Logger.getLogger(PackageNameCache.class.getName());
+
+    /** Name of the file in the job directory that stores the cache. */
+    static final String FILE_NAME = "checkstyle-packages.xml";
+
+    /** Entries of the previous build that have not been used yet. */
+    private final ConcurrentHashMap<String, Entry> previous = new ConcurrentHashMap<String, Entry>();
+    /** Entries that have been used or created in the current build. */
+    private final ConcurrentHashMap<String, Entry> current = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Loads the cache from the specified job directory. If there is no cache
+     * yet or if it could not be read, then an empty cache is returned.
+     *
+     * @param jobDirectory
+     *            the root directory of the job
+     * @return the cache
+     */
+    public static PackageNameCache load(final File jobDirectory) {
+        PackageNameCache cache = new PackageNameCache();
+        XmlFile file = getFile(jobDirectory);
+        if (file.exists()) {
+            try {
+                Object stored = file.read();
+                if (stored instanceof PackageNameCache) {
+                    cache.previous.putAll(((PackageNameCache)stored).current);
+                }
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read package name cache " + file, exception);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Stores the entries of the current build in the specified job directory.
+     *
+     * @param jobDirectory
+     *            the root directory of the job
+     */
+    public void save(final File jobDirectory) {
+        XmlFile file = getFile(jobDirectory);
+        try {
+            file.write(this);
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write package name cache " + file, exception);
+        }
+    }
+
+    private static XmlFile getFile(final File jobDirectory) {
+        return new XmlFile(new File(jobDirectory, FILE_NAME));
+    }
+
+    /**
+     * Returns the package name of the specified source file. If the size and
+     * modification time of the file match the cached entry, then the cached
+     * package name is returned. Otherwise the package name is detected by
+     * reading the file.
+     *
+     * @param fileName
+     *            the absolute name of the source file
+     * @return the package name
+     */
+    public String getPackageName(final String fileName) {
+        File file = new File(fileName);
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        Entry entry = current.get(fileName);
+        if (entry == null) {
+            entry = previous.remove(fileName);
+        }
+        if (entry != null && entry.matches(size, lastModified)) {
+            hits.incrementAndGet();
+            current.put(fileName, entry);
+            return entry.getPackageName();
+        }
+
+        misses.incrementAndGet();
+        String packageName = PackageDetectors.detectPackageName(fileName);
+        current.put(fileName, new Entry(size, lastModified, packageName));
+        return packageName;
+    }
+
+    /**
+     * Removes the entries that have not been used in the current build.
+     */
+    public void retainUsed() {
+        previous.clear();
+    }
+
+    /**
+     * Returns the number of package names that were served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of package names that needed to be detected.
+     *
+     * @return the number of cache misses
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The package name of a file together with the attributes of the file at the time of the detection.
+     */
+    private static final class Entry implements Serializable {
+        private static final long serialVersionUID = -2986282393127458207L;
+
+        private final long size;
+        private final long lastModified;
+        private final String packageName;
+
+        Entry(final long size, final long lastModified, final String packageName) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.packageName = packageName;
+        }
+
+        boolean matches(final long actualSize, final long actualLastModified) {
+            return size == actualSize && lastModified == actualLastModified;
+        }
+
+        String getPackageName() {
+            return packageName;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.remoting.ClassFilter;
+
+/**
+ * The result of a {@link CheckStyleFilesParser} run on the agent: the parsed
+ * warnings together with the package names of the source files that have
+ * been read and the digests of the Checkstyle reports. Reports that did not
+ * change since the previous build are not parsed again, their warnings need
+ * to be taken from the previous build.
+ * <p>
+ * When transferred from the agent to the controller, the warnings are written
+ * with the compact {@link WarningsCodec} rather than with Java serialization.
+ * The remaining parts of the {@link ParserResult} refer to the warnings by
+ * their index only. Both parts are buffered in memory and sent as a single
+ * response of the remoting call, the warnings are decoded once the complete
+ * response has been received.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+public class ParsedReports implements Serializable {
+    private static final long serialVersionUID = 3384546446549457357L;
+
+    /** The packages of the model of the analysis-core plug-in and of the collections of Guava. */
+    private static final String[] ALLOWED_PACKAGES = {"hudson.plugins.analysis.", "com.google.common.collect."};
+    /** The classes of Jenkins and the JDK that a {@link ParserResult} consists of. */
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(
+            WarningReference.class.getName(),
+            "java.lang.Boolean", "java.lang.Enum", "java.lang.Integer", "java.lang.Long", "java.lang.Number",
+            "java.lang.String", "java.lang.String$CaseInsensitiveComparator",
+            "java.util.ArrayList", "java.util.Arrays$ArrayList", "java.util.LinkedList",
+            "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap", "java.util.EnumMap",
+            "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet",
+            "java.util.Collections$EmptyList", "java.util.Collections$EmptyMap", "java.util.Collections$EmptySet",
+            "java.util.Collections$SingletonList", "java.util.Collections$SingletonMap",
+            "java.util.Collections$SingletonSet",
+            "java.util.Collections$UnmodifiableCollection", "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableRandomAccessList", "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$UnmodifiableSet", "java.util.Collections$UnmodifiableSortedMap",
+            "java.util.Collections$UnmodifiableSortedSet",
+            "java.util.Collections$SynchronizedCollection", "java.util.Collections$SynchronizedList",
+            "java.util.Collections$SynchronizedRandomAccessList", "java.util.Collections$SynchronizedMap",
+            "java.util.Collections$SynchronizedSet",
+            "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.ConcurrentHashMap$Segment",
+            "java.util.concurrent.CopyOnWriteArrayList", "java.util.concurrent.CopyOnWriteArraySet",
+            "java.util.concurrent.locks.AbstractOwnableSynchronizer",
+            "java.util.concurrent.locks.AbstractQueuedSynchronizer",
+            "java.util.concurrent.locks.ReentrantLock", "java.util.concurrent.locks.ReentrantLock$Sync",
+            "java.util.concurrent.locks.ReentrantLock$NonfairSync"));
+
+    /** The parsed warnings, serialized with {@link #writeObject(ObjectOutputStream)}. */
+    private transient ParserResult result;
+    private final PackageNameCache packageNames;
+    private final List<String> reportNames;
+    private final Map<String, ReportDigest> digests;
+    private final Set<String> skippedReports;
+    private final FailFastGate failFastGate;
+
+    /**
+     * Creates a new instance of {@link ParsedReports}.
+     *
+     * @param result
+     *            the parsed warnings
+     * @param packageNames
+     *            the package names of the source files that have been read
+     * @param reportNames
+     *            the absolute names of all reports, the warnings refer to the reports by their index in this list
+     * @param digests
+     *            the digests of all reports, mapped by the absolute names of the reports
+     * @param skippedReports
+     *            the absolute names of the reports that did not change since the previous build
+     * @param failFastGate
+     *            the gate that counted the warnings
+     */
+    public ParsedReports(final ParserResult result, final PackageNameCache packageNames,
+            final List<String> reportNames, final Map<String, ReportDigest> digests,
+            final Set<String> skippedReports, final FailFastGate failFastGate) {
+        this.result = result;
+        this.packageNames = packageNames;
+        this.reportNames = new ArrayList<String>(reportNames);
+        this.digests = digests;
+        this.skippedReports = skippedReports;
+        this.failFastGate = failFastGate;
+    }
+
+    /**
+     * Returns the parsed warnings. The warnings of the skipped reports are not part of this result.
+     *
+     * @return the parsed warnings
+     */
+    public ParserResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the package names of the source files that have been read.
+     *
+     * @return the package names
+     */
+    public PackageNameCache getPackageNames() {
+        return packageNames;
+    }
+
+    /**
+     * Returns the names of all reports, including the skipped ones.
+     *
+     * @return the absolute names of the reports, the index of a name is the report index of the warnings
+     * @see Warning#getReportIndex()
+     */
+    public List<String> getReportNames() {
+        return Collections.unmodifiableList(reportNames);
+    }
+
+    /**
+     * Returns the digests of all reports, including the skipped ones.
+     *
+     * @return the digests, mapped by the absolute names of the reports
+     */
+    public Map<String, ReportDigest> getDigests() {
+        return Collections.unmodifiableMap(digests);
+    }
+
+    /**
+     * Returns the reports that did not change since the previous build and have not been parsed.
+     *
+     * @return the absolute names of the skipped reports
+     */
+    public Set<String> getSkippedReports() {
+        return Collections.unmodifiableSet(skippedReports);
+    }
+
+    /**
+     * Returns the gate that counted the warnings. If the gate has been
+     * triggered, then the result contains a sample of the warnings only.
+     *
+     * @return the fail-fast gate
+     */
+    public FailFastGate getFailFastGate() {
+        return failFastGate;
+    }
+
+    /**
+     * Returns the time that was required to parse the skipped reports in the previous build.
+     *
+     * @return the saved time in milliseconds
+     */
+    public long getSavedTime() {
+        long savedTime = 0;
+        for (String report : skippedReports) {
+            savedTime += digests.get(report).getParseTime();
+        }
+        return savedTime;
+    }
+
+    private void writeObject(final ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+
+        ByteArrayOutputStream resultWithoutWarnings = new ByteArrayOutputStream();
+        WarningReplacingOutputStream resultOutput = new WarningReplacingOutputStream(resultWithoutWarnings);
+        resultOutput.writeObject(result);
+        resultOutput.close();
+
+        new WarningsCodec().write(resultOutput.getWarnings(), output);
+        output.writeInt(resultWithoutWarnings.size());
+        resultWithoutWarnings.writeTo(output);
+    }
+
+    private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+
+        List<Warning> warnings = new WarningsCodec().read(input);
+        byte[] resultWithoutWarnings = new byte[input.readInt()];
+        input.readFully(resultWithoutWarnings);
+
+        WarningResolvingInputStream resultInput = new WarningResolvingInputStream(
+                new ByteArrayInputStream(resultWithoutWarnings), warnings);
+        try {
+            result = (ParserResult)resultInput.readObject();
+        }
+        finally {
+            resultInput.close();
+        }
+    }
+
+    /**
+     * Returns whether the specified class may be part of a serialized
+     * {@link ParserResult}, i.e. whether it is part of the model of the
+     * analysis-core plug-in, a string, a number or a collection. Arrays are
+     * accepted if their component type is a primitive type or an accepted
+     * class.
+     *
+     * @param name
+     *            the name of the class
+     * @return {@code true} if the class is accepted, {@code false} otherwise
+     */
+    static boolean isAllowedClass(final String name) {
+        String component = name;
+        while (component.startsWith("[")) {
+            component = component.substring(1);
+        }
+        if (component.length() < name.length()) {
+            if (component.length() == 1) {
+                return "ZBCSIJFD".contains(component);
+            }
+            if (!component.startsWith("L") || !component.endsWith(";")) {
+                return false;
+            }
+            component = component.substring(1, component.length() - 1);
+        }
+        for (String prefix : ALLOWED_PACKAGES) {
+            if (component.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return ALLOWED_CLASSES.contains(component);
+    }
+
+    /**
+     * Placeholder for a warning that is transferred with the {@link WarningsCodec}.
+     */
+    private static final class WarningReference implements Serializable {
+        private static final long serialVersionUID = -5437302911838233484L;
+
+        private final int index;
+
+        WarningReference(final int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Serializes an object graph and replaces all warnings with references.
+     */
+    private static final class WarningReplacingOutputStream extends ObjectOutputStream {
+        private final Map<Warning, WarningReference> references = new IdentityHashMap<Warning, WarningReference>();
+        private final List<Warning> warnings = new ArrayList<Warning>();
+
+        WarningReplacingOutputStream(final OutputStream output) throws IOException {
+            super(output);
+
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(final Object object) throws IOException {
+            if (object != null && object.getClass() == Warning.class) {
+                Warning warning = (Warning)object;
+                WarningReference reference = references.get(warning);
+                if (reference == null) {
+                    reference = new WarningReference(warnings.size());
+                    references.put(warning, reference);
+                    warnings.add(warning);
+                }
+                return reference;
+            }
+            return object;
+        }
+
+        List<Warning> getWarnings() {
+            return warnings;
+        }
+    }
+
+    /**
+     * Deserializes an object graph and resolves the references to warnings.
+     * Since the serialized data has been created on the agent, only the
+     * classes that a {@link ParserResult} consists of are accepted, see
+     * {@link ParsedReports#isAllowedClass(String)}. Additionally, the classes
+     * are checked against the class filter of the remoting layer.
+     */
+    private static final class WarningResolvingInputStream extends ObjectInputStream {
+        private final List<Warning> warnings;
+
+        WarningResolvingInputStream(final InputStream input, final List<Warning> warnings) throws IOException {
+            super(input);
+
+            this.warnings = warnings;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass description)
+                throws IOException, ClassNotFoundException {
+            String name = description.getName();
+            if (!isAllowedClass(name) || ClassFilter.DEFAULT.isBlacklisted(name)) {
+                throw new InvalidClassException(name, "Rejected by class filter");
+            }
+            try {
+                return Class.forName(name, false, ParsedReports.class.getClassLoader());
+            }
+            catch (ClassNotFoundException exception) {
+                return super.resolveClass(description);
+            }
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException {
+            throw new InvalidClassException(Arrays.toString(interfaces), "Rejected by class filter");
+        }
+
+        @Override
+        protected Object resolveObject(final Object object) throws IOException {
+            if (object instanceof WarningReference) {
+                int index = ((WarningReference)object).index;
+                if (index < 0 || index >= warnings.size()) {
+                    throw new StreamCorruptedException("Invalid warning reference " + index);
+                }
+                return warnings.get(index);
+            }
+            return object;
+        }
+    }
+}
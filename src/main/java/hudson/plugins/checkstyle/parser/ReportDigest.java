@@ -0,0 +1,49 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.Serializable;
+
+/**
+ * The digest of the content of a Checkstyle report together with the time
+ * that was required to parse the report. If the digest of a report does not
+ * change between two builds, then the warnings of the report can be taken
+ * from the previous build.
+ *
+ * @author Ulli Hafner
+ */
+public class ReportDigest implements Serializable {
+    private static final long serialVersionUID = -3290245683052961374L;
+
+    private final String digest;
+    private final long parseTime;
+
+    /**
+     * Creates a new instance of {@link ReportDigest}.
+     *
+     * @param digest
+     *            the digest of the report content
+     * @param parseTime
+     *            the time in milliseconds that was required to parse the report
+     */
+    public ReportDigest(final String digest, final long parseTime) {
+        this.digest = digest;
+        this.parseTime = parseTime;
+    }
+
+    /**
+     * Returns the digest of the report content.
+     *
+     * @return the digest
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the time that was required to parse the report.
+     *
+     * @return the time in milliseconds
+     */
+    public long getParseTime() {
+        return parseTime;
+    }
+}
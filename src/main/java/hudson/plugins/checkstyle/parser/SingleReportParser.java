@@ -0,0 +1,58 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.TreeMap;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import hudson.plugins.analysis.core.FilesParser;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Parses a single Checkstyle file of a Maven module. The warnings are
+ * returned together with the fail-fast gate of the parser, so that the
+ * controller knows whether the result contains a sample of the warnings only.
+ *
+ * @author Ulli Hafner
+ */
+public class SingleReportParser extends MasterToSlaveFileCallable<ParsedReports> {
+    private static final long serialVersionUID = 7212359064385315046L;
+
+    /** Prefix of the log messages. */
+    private final String logPrefix;
+    /** The parser to use. */
+    private final CheckStyleParser parser;
+    /** The name of the Maven module. */
+    private final String moduleName;
+
+    /**
+     * Creates a new instance of {@link SingleReportParser}.
+     *
+     * @param logPrefix
+     *            prefix of the log messages
+     * @param parser
+     *            the parser to use
+     * @param moduleName
+     *            the name of the Maven module
+     */
+    public SingleReportParser(final String logPrefix, final CheckStyleParser parser, final String moduleName) {
+        super();
+
+        this.logPrefix = logPrefix;
+        this.parser = parser;
+        this.moduleName = moduleName;
+    }
+
+    @Override
+    public ParsedReports invoke(final File file, final VirtualChannel channel) throws IOException, InterruptedException {
+        ParserResult result = new FilesParser(logPrefix, parser, moduleName).invoke(file, channel);
+
+        return new ParsedReports(result, parser.getPackageNames(), Collections.<String>emptyList(),
+                new TreeMap<String, ReportDigest>(),
+                new HashSet<String>(), parser.getFailFastGate());
+    }
+}
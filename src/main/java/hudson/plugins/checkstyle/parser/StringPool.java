@@ -0,0 +1,89 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Canonicalizes the strings of the created warnings, so that equal file names,
+ * categories, types and messages reference the same string instance. A pool is
+ * used for all files of a parser run. Since the remoting layer writes a shared
+ * instance only once, the canonical instances are retained when the warnings
+ * are transferred from the agent to the controller.
+ *
+ * @author Ulli Hafner
+ */
+public class StringPool implements Serializable {
+    private static final long serialVersionUID = -2212435546785430938L;
+
+    /** Approximate number of bytes of an empty string instance, including its character array. */
+    private static final int STRING_OVERHEAD = 40;
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the canonical instance of the specified string.
+     *
+     * @param value
+     *            the value to canonicalize, might be <code>null</code>
+     * @return the canonical instance of the value
+     */
+    public String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = values.putIfAbsent(value, value);
+        if (existing == null) {
+            return value;
+        }
+        return existing;
+    }
+
+    /**
+     * Returns the number of distinct values in this pool.
+     *
+     * @return the number of distinct values
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Estimates the number of bytes that are saved by sharing the string
+     * instances of the messages, categories, types, file, package and module
+     * names of the specified warnings. The estimate compares the actual number of
+     * distinct string instances with the number of instances that would be
+     * required if every warning held its own copies.
+     *
+     * @param annotations
+     *            the annotations to evaluate
+     * @return the estimated number of saved bytes
+     */
+    public static long estimateSavedBytes(final Collection<FileAnnotation> annotations) {
+        Map<String, Boolean> instances = new IdentityHashMap<String, Boolean>();
+        long referencedBytes = 0;
+        long retainedBytes = 0;
+        for (FileAnnotation annotation : annotations) {
+            String[] fields = {annotation.getMessage(), annotation.getCategory(), annotation.getType(),
+                    annotation.getFileName(), annotation.getPackageName(), annotation.getModuleName()};
+            for (String field : fields) {
+                if (field != null) {
+                    long size = estimateSize(field);
+                    referencedBytes += size;
+                    if (instances.put(field, Boolean.TRUE) == null) {
+                        retainedBytes += size;
+                    }
+                }
+            }
+        }
+        return referencedBytes - retainedBytes;
+    }
+
+    private static long estimateSize(final String value) {
+        return STRING_OVERHEAD + 2L * value.length();
+    }
+}
@@ -5,8 +5,9 @@ import org.apache.commons.lang.StringUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.LineRange;
 import hudson.plugins.analysis.util.model.Priority;
-import hudson.plugins.checkstyle.rules.CheckStyleRules;
+import hudson.plugins.checkstyle.CheckStyleRulesAction;
 
 /**
  * A serializable Java Bean class representing a warning.
@@ -22,6 +23,12 @@ public class Warning extends AbstractAnnotation {
     /** Origin of the annotation. */
     public static final String ORIGIN = "checkstyle";
 
+    /**
+     * One-based index of the Checkstyle report that contains this warning in the report names of the result,
+     * 0 if the report is not known.
+     */
+    private int report;
+
     /**
      * Creates a new instance of {@link Warning}.
      *
@@ -62,9 +69,67 @@ public class Warning extends AbstractAnnotation {
         this(priority, message, category, type, lineNumber, lineNumber);
     }
 
+    /**
+     * Creates a copy of the specified warning. The copy has a new key and is not yet assigned to a build.
+     *
+     * @param copy
+     *            the warning to copy
+     */
+    public Warning(final Warning copy) {
+        this(copy.getPriority(), copy.getMessage(), copy.getCategory(), copy.getType(),
+                getLines(copy).getStart(), getLines(copy).getEnd());
+        setColumnPosition(copy.getColumnStart(), copy.getColumnEnd());
+        setFileName(copy.getFileName());
+        setModuleName(copy.getModuleName());
+        setPackageName(copy.getPackageName());
+        setPathName(copy.getPathName());
+        setContextHashCode(copy.getContextHashCode());
+        setAuthorName(copy.getAuthorName());
+        setAuthorEmail(copy.getAuthorEmail());
+        setCommitId(copy.getCommitId());
+        report = copy.report;
+    }
+
+    private static LineRange getLines(final Warning warning) {
+        return warning.getLineRanges().iterator().next();
+    }
+
+    /**
+     * Returns the index of the Checkstyle report that contains this warning.
+     *
+     * @return the index of the report in the report names of the result, or -1 if the report is not known
+     */
+    public int getReportIndex() {
+        return report - 1;
+    }
+
+    /**
+     * Sets the index of the Checkstyle report that contains this warning.
+     *
+     * @param reportIndex
+     *            the index of the report in the report names of the result, or -1 if the report is not known
+     */
+    public void setReportIndex(final int reportIndex) {
+        report = Math.max(reportIndex, -1) + 1;
+    }
+
+    /**
+     * Returns a summary of the rule description. The tool tips are shared by all warnings of the same type.
+     *
+     * @return the tool tip
+     */
     @Override
     public String getToolTip() {
-        return CheckStyleRules.getInstance().getDescription(getType());
+        return CheckStyleRulesAction.getToolTip(getType());
+    }
+
+    /**
+     * Returns the link to the complete rule description that is shown on the row of this warning.
+     *
+     * @return the link, or an empty string if there is no description
+     */
+    public String getDescriptionLink() {
+        return CheckStyleRulesAction.getDescriptionLink(getType());
     }
 
     /** Not used anymore. @deprecated */
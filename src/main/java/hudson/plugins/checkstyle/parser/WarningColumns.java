@@ -0,0 +1,385 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.LineRange;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Columnar binary storage format of the Checkstyle warnings of a build. All
+ * strings are stored once in a dictionary that is shared by all columns, the
+ * string columns contain the indexes of the dictionary entries only. Line
+ * numbers and keys are stored as differences to the value of the previous
+ * warning. Each column is compressed individually, so that columns with
+ * repeating values (e.g. the file names) shrink to a few bytes.
+ *
+ * @author Ulli Hafner
+ */
+public final class WarningColumns {
+    /** Identifies files in this format. */
+    private static final int MAGIC = 0x43535743;
+    private static final int VERSION = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final int PRIORITY = 0;
+    private static final int MESSAGE = 1;
+    private static final int CATEGORY = 2;
+    private static final int TYPE = 3;
+    private static final int LINE_START = 4;
+    private static final int LINE_END = 5;
+    private static final int COLUMN_START = 6;
+    private static final int COLUMN_END = 7;
+    private static final int FILE_NAME = 8;
+    private static final int MODULE_NAME = 9;
+    private static final int PACKAGE_NAME = 10;
+    private static final int PATH_NAME = 11;
+    private static final int REPORT = 12;
+    private static final int CONTEXT_HASH_CODE = 13;
+    private static final int KEY = 14;
+    private static final int BUILD = 15;
+    private static final int AUTHOR_NAME = 16;
+    private static final int AUTHOR_EMAIL = 17;
+    private static final int COMMIT_ID = 18;
+    private static final int NUMBER_OF_COLUMNS = 19;
+
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION_BIT = 0x80;
+    private static final int MAXIMUM_SHIFT = 63;
+
+    /** The unique key of an annotation, XStream restores this field reflectively as well. */
+    private static final Field KEY_FIELD = getKeyField();
+
+    private static Field getKeyField() {
+        try {
+            Field field = AbstractAnnotation.class.getDeclaredField("key");
+            field.setAccessible(true);
+            return field;
+        }
+        catch (NoSuchFieldException exception) {
+            return null;
+        }
+        catch (SecurityException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the specified annotations can be stored in this format.
+     * This is the case if all annotations are Checkstyle warnings with a
+     * single line range.
+     *
+     * @param annotations
+     *            the annotations to store
+     * @return <code>true</code> if the annotations can be stored,
+     *         <code>false</code> if the XML format is required
+     */
+    public static boolean canWrite(final Collection<? extends FileAnnotation> annotations) {
+        if (KEY_FIELD == null) {
+            return false;
+        }
+        for (FileAnnotation annotation : annotations) {
+            if (!(annotation instanceof Warning) || annotation.getLineRanges().size() != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the specified warnings to the output.
+     *
+     * @param warnings
+     *            the warnings to write
+     * @param output
+     *            the output, the stream is not closed
+     * @throws IOException
+     *             if the warnings could not be written
+     */
+    public static void write(final Collection<Warning> warnings, final OutputStream output) throws IOException {
+        Map<String, Integer> indexByString = new HashMap<String, Integer>();
+        ColumnOutput dictionary = new ColumnOutput();
+        ColumnOutput[] columns = new ColumnOutput[NUMBER_OF_COLUMNS];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnOutput();
+        }
+
+        int previousLine = 0;
+        long previousKey = 0;
+        for (Warning warning : warnings) {
+            columns[PRIORITY].data.writeByte(warning.getPriority().ordinal());
+            writeString(warning.getMessage(), columns[MESSAGE], dictionary, indexByString);
+            writeString(warning.getCategory(), columns[CATEGORY], dictionary, indexByString);
+            writeString(warning.getType(), columns[TYPE], dictionary, indexByString);
+
+            LineRange lines = warning.getLineRanges().iterator().next();
+            writeVarLong(zigZag(lines.getStart() - previousLine), columns[LINE_START].data);
+            writeVarLong(zigZag(lines.getEnd() - lines.getStart()), columns[LINE_END].data);
+            previousLine = lines.getStart();
+
+            writeVarLong(zigZag(warning.getColumnStart()), columns[COLUMN_START].data);
+            writeVarLong(zigZag(warning.getColumnEnd()), columns[COLUMN_END].data);
+            writeString(warning.getFileName(), columns[FILE_NAME], dictionary, indexByString);
+            writeString(warning.getModuleName(), columns[MODULE_NAME], dictionary, indexByString);
+            writeString(warning.getPackageName(), columns[PACKAGE_NAME], dictionary, indexByString);
+            writeString(warning.getPathName(), columns[PATH_NAME], dictionary, indexByString);
+            writeVarLong(warning.getReportIndex() + 1, columns[REPORT].data);
+            columns[CONTEXT_HASH_CODE].data.writeLong(warning.getContextHashCode());
+            writeVarLong(zigZag(warning.getKey() - previousKey), columns[KEY].data);
+            previousKey = warning.getKey();
+            writeVarLong(zigZag(warning.getBuild()), columns[BUILD].data);
+            writeString(warning.getAuthorName(), columns[AUTHOR_NAME], dictionary, indexByString);
+            writeString(warning.getAuthorEmail(), columns[AUTHOR_EMAIL], dictionary, indexByString);
+            writeString(warning.getCommitId(), columns[COMMIT_ID], dictionary, indexByString);
+        }
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        writeVarLong(warnings.size(), data);
+        writeVarLong(indexByString.size(), data);
+        dictionary.writeTo(data);
+        for (ColumnOutput column : columns) {
+            column.writeTo(data);
+        }
+        data.flush();
+    }
+
+    private static void writeString(final String value, final ColumnOutput column, final ColumnOutput dictionary,
+            final Map<String, Integer> indexByString) throws IOException {
+        if (value == null) {
+            writeVarLong(0, column.data);
+            return;
+        }
+        Integer index = indexByString.get(value);
+        if (index == null) {
+            index = indexByString.size();
+            indexByString.put(value, index);
+
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarLong(bytes.length, dictionary.data);
+            dictionary.data.write(bytes);
+        }
+        writeVarLong(index + 1, column.data);
+    }
+
+    /**
+     * Reads the warnings from the specified input.
+     *
+     * @param input
+     *            the input, the stream is not closed
+     * @return the warnings
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public static List<Warning> read(final InputStream input) throws IOException {
+        return read(input, null);
+    }
+
+    /**
+     * Reads the warnings with the specified row numbers from the specified
+     * input. The values of the other rows are skipped without creating
+     * warnings.
+     *
+     * @param input
+     *            the input, the stream is not closed
+     * @param rows
+     *            the row numbers of the warnings to read, <code>null</code>
+     *            to read all warnings
+     * @return the warnings
+     * @throws IOException
+     *             if the warnings could not be read
+     * @see WarningIndex
+     */
+    public static List<Warning> read(final InputStream input, final BitSet rows) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a Checkstyle warnings file");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported version " + version);
+        }
+        int size = (int) readVarLong(data);
+
+        String[] strings = new String[(int) readVarLong(data)];
+        DataInputStream dictionary = readColumn(data);
+        try {
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[(int) readVarLong(dictionary)];
+                dictionary.readFully(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+        }
+        finally {
+            dictionary.close();
+        }
+
+        DataInputStream[] columns = new DataInputStream[NUMBER_OF_COLUMNS];
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = readColumn(data);
+            }
+            return read(size, strings, columns, rows);
+        }
+        finally {
+            for (DataInputStream column : columns) {
+                if (column != null) {
+                    column.close();
+                }
+            }
+        }
+    }
+
+    private static List<Warning> read(final int size, final String[] strings, final DataInput[] columns,
+            final BitSet rows) throws IOException {
+        List<Warning> warnings = new ArrayList<Warning>(rows == null ? size : rows.cardinality());
+        int previousLine = 0;
+        long previousKey = 0;
+        for (int i = 0; i < size; i++) {
+            int priority = columns[PRIORITY].readUnsignedByte();
+            if (priority >= PRIORITIES.length) {
+                throw new StreamCorruptedException("Invalid priority " + priority);
+            }
+            String message = readString(columns[MESSAGE], strings);
+            String category = readString(columns[CATEGORY], strings);
+            String type = readString(columns[TYPE], strings);
+            int start = previousLine + (int) unZigZag(readVarLong(columns[LINE_START]));
+            int end = start + (int) unZigZag(readVarLong(columns[LINE_END]));
+            previousLine = start;
+            int columnStart = (int) unZigZag(readVarLong(columns[COLUMN_START]));
+            int columnEnd = (int) unZigZag(readVarLong(columns[COLUMN_END]));
+            String fileName = readString(columns[FILE_NAME], strings);
+            String moduleName = readString(columns[MODULE_NAME], strings);
+            String packageName = readString(columns[PACKAGE_NAME], strings);
+            String pathName = readString(columns[PATH_NAME], strings);
+            int reportIndex = (int) readVarLong(columns[REPORT]) - 1;
+            long contextHashCode = columns[CONTEXT_HASH_CODE].readLong();
+            long key = previousKey + unZigZag(readVarLong(columns[KEY]));
+            previousKey = key;
+            int build = (int) unZigZag(readVarLong(columns[BUILD]));
+            String authorName = readString(columns[AUTHOR_NAME], strings);
+            String authorEmail = readString(columns[AUTHOR_EMAIL], strings);
+            String commitId = readString(columns[COMMIT_ID], strings);
+
+            if (rows == null || rows.get(i)) {
+                Warning warning = new Warning(PRIORITIES[priority], message, category, type, start, end);
+                warning.setColumnPosition(columnStart, columnEnd);
+                warning.setFileName(fileName);
+                warning.setModuleName(moduleName);
+                warning.setPackageName(packageName);
+                warning.setPathName(pathName);
+                warning.setReportIndex(reportIndex);
+                warning.setContextHashCode(contextHashCode);
+                setKey(warning, key);
+                warning.setBuild(build);
+                warning.setAuthorName(authorName);
+                warning.setAuthorEmail(authorEmail);
+                warning.setCommitId(commitId);
+                warnings.add(warning);
+            }
+        }
+        return warnings;
+    }
+
+    private static void setKey(final Warning warning, final long key) {
+        try {
+            KEY_FIELD.setLong(warning, key);
+        }
+        catch (IllegalAccessException exception) {
+            Logger.getLogger(WarningColumns.class.getName()).log(Level.WARNING, "Can't restore warning key", exception);
+        }
+    }
+
+    private static String readString(final DataInput column, final String[] strings) throws IOException {
+        int index = (int) readVarLong(column);
+        if (index == 0) {
+            return null;
+        }
+        if (index > strings.length) {
+            throw new StreamCorruptedException("Invalid string reference " + index);
+        }
+        return strings[index - 1];
+    }
+
+    private static DataInputStream readColumn(final DataInputStream data) throws IOException {
+        byte[] compressed = new byte[(int) readVarLong(data)];
+        data.readFully(compressed);
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes a non-negative long using 7 bits per byte, the highest bit of
+     * each byte indicates whether more bytes follow.
+     */
+    static void writeVarLong(final long value, final DataOutput output) throws IOException {
+        long remaining = value;
+        while ((remaining & ~SEVEN_BITS) != 0) {
+            output.writeByte((int) (remaining & SEVEN_BITS) | CONTINUATION_BIT);
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    static long readVarLong(final DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift <= MAXIMUM_SHIFT; shift += 7) {
+            int current = input.readUnsignedByte();
+            value |= (long) (current & SEVEN_BITS) << shift;
+            if ((current & CONTINUATION_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Invalid variable length integer");
+    }
+
+    /**
+     * A column that is compressed while it is written.
+     */
+    private static class ColumnOutput {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(bytes));
+
+        void writeTo(final DataOutputStream output) throws IOException {
+            data.close();
+            writeVarLong(bytes.size(), output);
+            bytes.writeTo(output);
+        }
+    }
+
+    private WarningColumns() {
+        // prevents instantiation
+    }
+}
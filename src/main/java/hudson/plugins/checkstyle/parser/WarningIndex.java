@@ -0,0 +1,215 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Index of the warnings that are stored with {@link WarningColumns}. For each
+ * module, package, file, category and type the index contains the row numbers
+ * of the corresponding warnings. So a detail view that shows the warnings of a
+ * single module, package, file, category or type needs to create only the
+ * warnings of these rows.
+ *
+ * @author Ulli Hafner
+ */
+public final class WarningIndex {
+    /** Identifies files in this format. */
+    private static final int MAGIC = 0x43535749;
+    private static final int VERSION = 1;
+
+    /**
+     * The properties of the warnings that are indexed. The names of the
+     * properties correspond to the link prefixes of the detail views.
+     */
+    public enum Property {
+        /** The module of a warning. */
+        MODULE("module.") {
+            @Override
+            String getValue(final Warning warning) {
+                return warning.getModuleName();
+            }
+        },
+        /** The package of a warning. */
+        PACKAGE("package.") {
+            @Override
+            String getValue(final Warning warning) {
+                return warning.getPackageName();
+            }
+        },
+        /** The file of a warning. */
+        FILE("file.") {
+            @Override
+            String getValue(final Warning warning) {
+                return warning.getFileName();
+            }
+        },
+        /** The category of a warning. */
+        CATEGORY("category.") {
+            @Override
+            String getValue(final Warning warning) {
+                return warning.getCategory();
+            }
+        },
+        /** The type of a warning. */
+        TYPE("type.") {
+            @Override
+            String getValue(final Warning warning) {
+                return warning.getType();
+            }
+        };
+
+        private final String linkPrefix;
+
+        Property(final String linkPrefix) {
+            this.linkPrefix = linkPrefix;
+        }
+
+        /**
+         * Returns the prefix of the links to the detail views of this property.
+         *
+         * @return the link prefix
+         */
+        public String getLinkPrefix() {
+            return linkPrefix;
+        }
+
+        abstract String getValue(Warning warning);
+    }
+
+    /**
+     * Writes the index of the specified warnings. The warnings must be in the
+     * same order as in the file written by {@link WarningColumns}.
+     *
+     * @param warnings
+     *            the warnings
+     * @param output
+     *            the output, the stream is not closed
+     * @throws IOException
+     *             if the index could not be written
+     */
+    public static void write(final Collection<Warning> warnings, final OutputStream output) throws IOException {
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.flush();
+
+        Deflater deflater = new Deflater();
+        try {
+            DeflaterOutputStream compressed = new DeflaterOutputStream(output, deflater);
+            DataOutputStream data = new DataOutputStream(compressed);
+            writeRows(warnings, data);
+            data.flush();
+            compressed.finish();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeRows(final Collection<Warning> warnings, final DataOutputStream data)
+            throws IOException {
+        for (Property property : Property.values()) {
+            Map<String, List<Integer>> rowsByValue = new LinkedHashMap<String, List<Integer>>();
+            int row = 0;
+            for (Warning warning : warnings) {
+                String value = StringUtils.defaultString(property.getValue(warning));
+                List<Integer> rows = rowsByValue.get(value);
+                if (rows == null) {
+                    rows = new ArrayList<Integer>();
+                    rowsByValue.put(value, rows);
+                }
+                rows.add(row++);
+            }
+
+            WarningColumns.writeVarLong(rowsByValue.size(), data);
+            for (Entry<String, List<Integer>> entry : rowsByValue.entrySet()) {
+                data.writeUTF(entry.getKey());
+                WarningColumns.writeVarLong(entry.getValue().size(), data);
+                int previous = 0;
+                for (Integer current : entry.getValue()) {
+                    WarningColumns.writeVarLong(current - previous, data);
+                    previous = current;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the row numbers of the warnings with the specified property
+     * value. The value is identified by its hash code, as in the links to the
+     * detail views.
+     *
+     * @param input
+     *            the index, the stream is closed afterwards
+     * @param property
+     *            the property
+     * @param hashCode
+     *            the hash code of the property value
+     * @return the row numbers, or <code>null</code> if there is no value with
+     *         the specified hash code
+     * @throws IOException
+     *             if the index could not be read
+     */
+    public static BitSet findRows(final InputStream input, final Property property, final int hashCode)
+            throws IOException {
+        DataInputStream header = new DataInputStream(input);
+        if (header.readInt() != MAGIC || header.readUnsignedByte() != VERSION) {
+            throw new StreamCorruptedException("Not a Checkstyle warnings index");
+        }
+
+        DataInputStream data = new DataInputStream(new InflaterInputStream(input));
+        try {
+            for (Property current : Property.values()) {
+                long values = WarningColumns.readVarLong(data);
+                for (long i = 0; i < values; i++) {
+                    String value = data.readUTF();
+                    boolean isMatch = current == property && value.hashCode() == hashCode;
+                    BitSet rows = readRows(data, isMatch);
+                    if (isMatch) {
+                        return rows;
+                    }
+                }
+                if (current == property) {
+                    return null;
+                }
+            }
+            return null;
+        }
+        finally {
+            data.close();
+        }
+    }
+
+    private static BitSet readRows(final DataInputStream data, final boolean isMatch) throws IOException {
+        BitSet rows = new BitSet();
+        long size = WarningColumns.readVarLong(data);
+        int row = 0;
+        for (long i = 0; i < size; i++) {
+            row += (int) WarningColumns.readVarLong(data);
+            if (isMatch) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    private WarningIndex() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,152 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import hudson.util.DaemonThreadFactory;
+
+/**
+ * Groups the warnings of a Checkstyle report by their source files and sets
+ * the attributes that require reading the source files, i.e. the package name
+ * and the context hash code. Each source file is read only once for all of its
+ * warnings. The source files are processed concurrently by a thread pool that
+ * is shared by all reports that are parsed in the same JVM, so the number of
+ * threads does not grow with the number of reports that are parsed in
+ * parallel.
+ *
+ * @author Ulli Hafner
+ */
+class WarningsByFile {
+    /** Maximum number of threads that read source files concurrently. */
+    private static final int MAXIMUM_THREADS = 4;
+    /** Number of seconds an idle thread of the pool is kept alive. */
+    private static final int KEEP_ALIVE = 60;
+
+    /** The threads that read the source files of all reports. */
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private static ExecutorService createExecutor() {
+        int threads = Math.max(1, Math.min(MAXIMUM_THREADS, Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final Map<String, List<Warning>> warningsByFile = new LinkedHashMap<String, List<Warning>>();
+    private final CheckStyleParser parser;
+    private final PackageNameCache packageNames;
+    private final StringPool strings;
+
+    /**
+     * Creates a new instance of {@link WarningsByFile}.
+     *
+     * @param parser
+     *            the parser that computes the context hash codes
+     * @param packageNames
+     *            the cache of package names
+     * @param strings
+     *            the pool of canonical strings
+     */
+    WarningsByFile(final CheckStyleParser parser, final PackageNameCache packageNames, final StringPool strings) {
+        this.parser = parser;
+        this.packageNames = packageNames;
+        this.strings = strings;
+    }
+
+    /**
+     * Registers a warning of the specified source file.
+     *
+     * @param fileName
+     *            the name of the source file
+     * @param warning
+     *            the warning
+     */
+    void add(final String fileName, final Warning warning) {
+        List<Warning> warnings = warningsByFile.get(fileName);
+        if (warnings == null) {
+            warnings = new ArrayList<Warning>();
+            warningsByFile.put(fileName, warnings);
+        }
+        warnings.add(warning);
+    }
+
+    /**
+     * Reads the registered source files and sets the package names and context
+     * hash codes of the warnings. Returns when all files have been processed.
+     *
+     * @throws InterruptedException
+     *             if the current thread has been interrupted while waiting for
+     *             the results
+     * @throws InvocationTargetException
+     *             if a source file could not be processed
+     */
+    void resolve() throws InterruptedException, InvocationTargetException {
+        if (warningsByFile.isEmpty()) {
+            return;
+        }
+
+        if (warningsByFile.size() < 2 || Runtime.getRuntime().availableProcessors() < 2) {
+            for (Map.Entry<String, List<Warning>> entry : warningsByFile.entrySet()) {
+                try {
+                    new SourceFile(entry.getKey(), entry.getValue()).call();
+                }
+                catch (RuntimeException exception) {
+                    throw new InvocationTargetException(exception);
+                }
+            }
+            return;
+        }
+
+        List<Future<?>> results = new ArrayList<Future<?>>(warningsByFile.size());
+        try {
+            for (Map.Entry<String, List<Warning>> entry : warningsByFile.entrySet()) {
+                results.add(EXECUTOR.submit(new SourceFile(entry.getKey(), entry.getValue())));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+        catch (ExecutionException exception) {
+            throw new InvocationTargetException(exception.getCause());
+        }
+        finally {
+            for (Future<?> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Sets the attributes of all warnings of a single source file.
+     */
+    private class SourceFile implements Callable<Void> {
+        private final String fileName;
+        private final List<Warning> warnings;
+
+        SourceFile(final String fileName, final List<Warning> warnings) {
+            this.fileName = fileName;
+            this.warnings = warnings;
+        }
+
+        @Override
+        public Void call() {
+            String packageName = strings.intern(packageNames.getPackageName(fileName));
+            for (Warning warning : warnings) {
+                warning.setPackageName(packageName);
+            }
+            parser.setContextHashCodes(fileName, warnings);
+            return null;
+        }
+    }
+}
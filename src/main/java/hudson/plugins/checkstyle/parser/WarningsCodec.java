@@ -0,0 +1,186 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Compact binary encoding of Checkstyle warnings that is used to transfer the
+ * warnings from the agent to the controller. Strings are dictionary encoded:
+ * each distinct string is written only once, subsequent occurrences refer to
+ * the index of the first occurrence. Line and column numbers are written as
+ * variable length integers. The number of warnings is written first.
+ * <p>
+ * This is a compact one-shot encoding: the encoded warnings are part of the
+ * serialized {@link ParsedReports}, i.e. the remoting layer transfers and
+ * buffers the complete payload before the warnings are decoded. The encoding
+ * reduces the size of the payload, it does not overlap decoding and transfer.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+class WarningsCodec {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int FIRST_INDEX = 2;
+
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION_BIT = 0x80;
+    private static final int MAXIMUM_SHIFT = 28;
+
+    private final Map<String, Integer> indexByString = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+
+    /**
+     * Writes the number of warnings and the specified warnings to the output.
+     *
+     * @param warnings
+     *            the warnings to write
+     * @param output
+     *            the output
+     * @throws IOException
+     *             if the warnings could not be written
+     */
+    void write(final List<Warning> warnings, final DataOutput output) throws IOException {
+        writeVarInt(warnings.size(), output);
+        for (Warning warning : warnings) {
+            writeWarning(warning, output);
+        }
+    }
+
+    private void writeWarning(final Warning warning, final DataOutput output) throws IOException {
+        output.writeByte(warning.getPriority().ordinal());
+        writeString(warning.getMessage(), output);
+        writeString(warning.getCategory(), output);
+        writeString(warning.getType(), output);
+        writeVarInt(warning.getPrimaryLineNumber(), output);
+        writeVarInt(warning.getColumnStart(), output);
+        writeVarInt(warning.getColumnEnd(), output);
+        writeString(warning.getFileName(), output);
+        writeString(warning.getModuleName(), output);
+        writeString(warning.getPackageName(), output);
+        writeString(warning.getPathName(), output);
+        writeVarInt(warning.getReportIndex() + 1, output);
+        output.writeLong(warning.getContextHashCode());
+    }
+
+    /**
+     * Reads the number of warnings and the warnings from the specified input.
+     *
+     * @param input
+     *            the input
+     * @return the warnings
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    List<Warning> read(final DataInput input) throws IOException {
+        int size = readVarInt(input);
+        if (size < 0) {
+            throw new StreamCorruptedException("Invalid number of warnings " + size);
+        }
+        List<Warning> warnings = new ArrayList<Warning>();
+        for (int i = 0; i < size; i++) {
+            warnings.add(readWarning(input));
+        }
+        return warnings;
+    }
+
+    private Warning readWarning(final DataInput input) throws IOException {
+        int priority = input.readUnsignedByte();
+        if (priority >= PRIORITIES.length) {
+            throw new StreamCorruptedException("Invalid priority " + priority);
+        }
+        String message = readString(input);
+        String category = readString(input);
+        String type = readString(input);
+        int line = readVarInt(input);
+
+        Warning warning = new Warning(PRIORITIES[priority], message, category, type, line, line);
+        int columnStart = readVarInt(input);
+        int columnEnd = readVarInt(input);
+        warning.setColumnPosition(columnStart, columnEnd);
+        warning.setFileName(readString(input));
+        warning.setModuleName(readString(input));
+        warning.setPackageName(readString(input));
+        warning.setPathName(readString(input));
+        warning.setReportIndex(readVarInt(input) - 1);
+        warning.setContextHashCode(input.readLong());
+        return warning;
+    }
+
+    private void writeString(final String value, final DataOutput output) throws IOException {
+        if (value == null) {
+            writeVarInt(NULL_STRING, output);
+            return;
+        }
+        Integer index = indexByString.get(value);
+        if (index == null) {
+            indexByString.put(value, strings.size());
+            strings.add(value);
+
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarInt(NEW_STRING, output);
+            writeVarInt(bytes.length, output);
+            output.write(bytes);
+        }
+        else {
+            writeVarInt(index + FIRST_INDEX, output);
+        }
+    }
+
+    private String readString(final DataInput input) throws IOException {
+        int marker = readVarInt(input);
+        if (marker == NULL_STRING) {
+            return null;
+        }
+        if (marker == NEW_STRING) {
+            byte[] bytes = new byte[readVarInt(input)];
+            input.readFully(bytes);
+            String value = new String(bytes, UTF_8);
+            strings.add(value);
+            return value;
+        }
+        int index = marker - FIRST_INDEX;
+        if (index >= strings.size()) {
+            throw new StreamCorruptedException("Invalid string reference " + index);
+        }
+        return strings.get(index);
+    }
+
+    /**
+     * Writes a non-negative integer using 7 bits per byte, the highest bit of
+     * each byte indicates whether more bytes follow. Negative values are
+     * written as zero.
+     */
+    private void writeVarInt(final int value, final DataOutput output) throws IOException {
+        int remaining = Math.max(value, 0);
+        while (remaining > SEVEN_BITS) {
+            output.writeByte((remaining & SEVEN_BITS) | CONTINUATION_BIT);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    private int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= MAXIMUM_SHIFT; shift += 7) {
+            int current = input.readUnsignedByte();
+            value |= (current & SEVEN_BITS) << shift;
+            if ((current & CONTINUATION_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Invalid variable length integer");
+    }
+}
@@ -9,22 +9,58 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.xml.sax.SAXException;
 
 import hudson.plugins.analysis.util.SecureDigester;
 
 /**
- * Reads the meta data of the Checkstyle rules from the DocBook files of the Checkstyle distribution.
+ * Reads the meta data of the Checkstyle rules from the DocBook files of the Checkstyle distribution. During
+ * initialization only the index that maps the rule names to the categories of the DocBook files is read. The
+ * rules of a category are read the first time one of its rules is requested: from the catalog that has been
+ * precompiled by the <code>RuleCatalogCompiler</code> during the build or, if there is no catalog, from the
+ * DocBook file itself. The index is part of the sources, the <code>RuleCatalogCompiler</code> verifies
+ * during the build that it matches the DocBook files. If the index is missing, then all DocBook files are
+ * read during initialization.
+ * <p>
+ * The index is built completely and then published atomically as an immutable snapshot, so that the rules
+ * can be read by concurrent requests without locks. Until the index has been published, all lookups return a
+ * placeholder rule without description. Rules that are requested by an alias (i.e. with the suffix
+ * <code>Check</code>) and names that are not found at all are cached by the requested name.
  *
  * @author Ulli Hafner
  */
 public final class CheckStyleRules {
-    /** Mapping of rule names to rules. */
-    private final Map<String, Rule> rulesByName = new HashMap<String, Rule>();
+    /** Name of the resource that maps rule names to categories. */
+    static final String INDEX = "index.properties";
+    /** The categories of the DocBook files. */
+    static final String[] CATEGORIES = {"annotation", "blocks", "coding", "design", "filters", "header",
+            "imports", "javadoc", "metrics", "misc", "modifier", "naming", "regexp", "reporting",
+            "sizes", "whitespace"};
+    /** Maximum number of cached aliases and unknown rule names. */
+    static final int MAXIMUM_CACHED_NAMES = 1000;
+
+    /** Immutable mapping of rule names to categories, <code>null</code> until the index has been read. */
+    private final AtomicReference<Map<String, String>> categoriesByName = new AtomicReference<Map<String, String>>();
+    /** Mapping of categories to the already loaded rules of the category, mapped by rule name. */
+    private final ConcurrentMap<String, Map<String, Rule>> rulesByCategory
+            = new ConcurrentHashMap<String, Map<String, Rule>>();
+    /** Mapping of aliases and unknown rule names to the resolved rule or a placeholder. */
+    private final ConcurrentMap<String, Rule> resolvedNames = new ConcurrentHashMap<String, Rule>();
+    /** Number of lookups that returned a rule with description. */
+    private final AtomicLong hits = new AtomicLong();
+    /** Number of lookups that returned a rule without description. */
+    private final AtomicLong misses = new AtomicLong();
     /** Singleton instance. */
     private static final CheckStyleRules INSTANCE = new CheckStyleRules();
 
@@ -45,26 +81,94 @@ public final class CheckStyleRules {
     }
 
     /**
-     * Initializes the rules.
+     * Initializes the rules, i.e. reads the index of the rule categories and publishes it. This method may be
+     * called from a background thread: lookups that are made before the index has been published return a
+     * placeholder rule.
      */
     public void initialize() {
-        try {
-            String[] ruleFiles = new String[] {"annotation", "blocks", "coding", "design", "filters", "header",
-                    "imports", "javadoc", "metrics", "misc", "modifier", "naming", "regexp", "reporting",
-                    "sizes", "whitespace"};
-            for (int i = 0; i < ruleFiles.length; i++) {
-                String ruleFile = ruleFiles[i];
-                InputStream inputStream = CheckStyleRules.class.getResourceAsStream("config_" + ruleFile + ".xml");
-                SecureDigester digester = createDigester();
-                List<Rule> rules = new ArrayList<Rule>();
-                digester.push(rules);
-                digester.parse(inputStream);
-                for (Rule rule : rules) {
-                    if (StringUtils.isNotBlank(rule.getDescription())) {
-                        rulesByName.put(rule.getName(), rule);
-                    }
+        Map<String, String> categories = new HashMap<String, String>();
+        InputStream inputStream = CheckStyleRules.class.getResourceAsStream(INDEX);
+        if (inputStream == null) {
+            for (String category : CATEGORIES) {
+                for (String name : getCategory(category).keySet()) {
+                    categories.put(name, category);
                 }
             }
+            categoriesByName.set(Collections.unmodifiableMap(categories));
+            return;
+        }
+        try {
+            Properties index = new Properties();
+            index.load(inputStream);
+            for (String name : index.stringPropertyNames()) {
+                categories.put(name, index.getProperty(name));
+            }
+        }
+        catch (IOException exception) {
+            log(exception);
+        }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+        categoriesByName.set(Collections.unmodifiableMap(categories));
+    }
+
+    /**
+     * Returns whether the index of the rules has been published.
+     *
+     * @return <code>true</code> if the rules are initialized, <code>false</code> if all lookups still return
+     *         placeholders
+     */
+    public boolean isInitialized() {
+        return categoriesByName.get() != null;
+    }
+
+    /**
+     * Returns the rules of the specified category. The rules are read from the DocBook file of the category
+     * the first time the category is requested. If several threads request a new category at the same time,
+     * then each of them reads the category but only the first result is published.
+     *
+     * @param category
+     *            the category
+     * @return the rules of the category, mapped by rule name
+     */
+    private Map<String, Rule> getCategory(final String category) {
+        Map<String, Rule> rules = rulesByCategory.get(category);
+        if (rules == null) {
+            rules = readCategory(category);
+            Map<String, Rule> published = rulesByCategory.putIfAbsent(category, rules);
+            if (published != null) {
+                return published;
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Reads the rules of the specified category. If the precompiled catalog of the category is available, then
+     * the catalog is read. Otherwise the rules are read from the DocBook file of the category.
+     *
+     * @param category
+     *            the category
+     * @return the rules of the category, mapped by rule name
+     */
+    private Map<String, Rule> readCategory(final String category) {
+        InputStream catalog = CheckStyleRules.class.getResourceAsStream(RuleCatalog.getFileName(category));
+        if (catalog != null) {
+            try {
+                return RuleCatalog.read(catalog);
+            }
+            catch (IOException exception) {
+                log(exception);
+            }
+            finally {
+                IOUtils.closeQuietly(catalog);
+            }
+        }
+
+        InputStream inputStream = CheckStyleRules.class.getResourceAsStream(getDocBookFileName(category));
+        try {
+            return readDocBook(inputStream);
         }
         catch (ParserConfigurationException exception) {
             log(exception);
@@ -75,6 +179,50 @@ public final class CheckStyleRules {
         catch (SAXException exception) {
             log(exception);
         }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Returns the name of the DocBook file of the specified category.
+     *
+     * @param category
+     *            the category
+     * @return the name of the resource
+     */
+    static String getDocBookFileName(final String category) {
+        return "config_" + category + ".xml";
+    }
+
+    /**
+     * Reads the rules of a DocBook file. Rules without description are skipped.
+     *
+     * @param inputStream
+     *            the DocBook file
+     * @return the rules, mapped by rule name
+     * @throws ParserConfigurationException
+     *             if digester is not configured properly
+     * @throws IOException
+     *             if the file could not be read
+     * @throws SAXException
+     *             if the file is not a valid DocBook file
+     */
+    static Map<String, Rule> readDocBook(final InputStream inputStream)
+            throws ParserConfigurationException, IOException, SAXException {
+        SecureDigester digester = createDigester();
+        List<Rule> rules = new ArrayList<Rule>();
+        digester.push(rules);
+        digester.parse(inputStream);
+
+        Map<String, Rule> rulesByName = new HashMap<String, Rule>();
+        for (Rule rule : rules) {
+            if (StringUtils.isNotBlank(rule.getDescription())) {
+                rulesByName.put(rule.getName(), rule);
+            }
+        }
+        return Collections.unmodifiableMap(rulesByName);
     }
 
     private void log(final Throwable exception) {
@@ -88,7 +236,7 @@ public final class CheckStyleRules {
      * @throws ParserConfigurationException
      *             if digester is not configured properly
      */
-    private SecureDigester createDigester() throws ParserConfigurationException {
+    private static SecureDigester createDigester() throws ParserConfigurationException {
         SecureDigester digester = new SecureDigester(CheckStyleRules.class);
 
         String section = "*/section";
@@ -105,31 +253,104 @@ public final class CheckStyleRules {
     }
 
     /**
-     * Returns all Checkstyle rules.
+     * Returns all Checkstyle rules. Reads the rules of all categories that have not been requested yet. Returns
+     * an empty collection if the rules are not initialized yet.
      *
      * @return all Checkstyle rules
      */
     public Collection<Rule> getRules() {
-        return Collections.unmodifiableCollection(rulesByName.values());
+        Map<String, String> categories = categoriesByName.get();
+        if (categories == null) {
+            return Collections.emptyList();
+        }
+        List<Rule> rules = new ArrayList<Rule>();
+        for (String category : new TreeSet<String>(categories.values())) {
+            rules.addAll(getCategory(category).values());
+        }
+        return Collections.unmodifiableCollection(rules);
     }
 
     /**
-     * Returns the Checkstyle rule with the specified name.
+     * Returns the Checkstyle rule with the specified name. If there is no such rule or if the rules are not
+     * initialized yet, then a placeholder rule without description is returned.
      *
      * @param name the name of the rule
      * @return the Checkstyle rule with the specified name.
      */
     public Rule getRule(final String name) {
-        Rule rule = rulesByName.get(name);
+        Rule rule = name == null ? null : resolvedNames.get(name);
         if (rule == null) {
-            rule = rulesByName.get(StringUtils.removeEnd(name, "Check"));
+            rule = findRule(name);
         }
         if (rule == null) {
-            return new Rule(name);
+            rule = resolve(name);
+        }
+        if (StringUtils.isEmpty(rule.getDescription())) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
         }
         return rule;
     }
 
+    /**
+     * Resolves a rule name that is not found in the index: the name might be an alias with the suffix
+     * <code>Check</code> or an unknown rule. The result is cached as soon as the rules are initialized. If the
+     * cache is full, then it is cleared.
+     *
+     * @param name
+     *            the name of the rule
+     * @return the rule or a placeholder
+     */
+    private Rule resolve(final String name) {
+        Rule rule = findRule(StringUtils.removeEnd(name, "Check"));
+        if (rule == null) {
+            rule = new Rule(name);
+        }
+        if (name != null && isInitialized()) {
+            if (resolvedNames.size() >= MAXIMUM_CACHED_NAMES) {
+                resolvedNames.clear();
+            }
+            resolvedNames.put(name, rule);
+        }
+        return rule;
+    }
+
+    /**
+     * Returns the number of lookups that returned a rule with description.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that returned a rule without description, i.e. lookups of rules that are
+     * not part of the bundled Checkstyle documentation.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private Rule findRule(final String name) {
+        if (name == null) {
+            return null;
+        }
+        Map<String, String> categories = categoriesByName.get();
+        if (categories == null) {
+            return null;
+        }
+        String category = categories.get(name);
+        if (category == null) {
+            return null;
+        }
+        return getCategory(category).get(name);
+    }
+
     /**
      * Returns the description of the Checkstyle rule with the specified name.
      *
@@ -34,6 +34,17 @@ public class Rule {
         description = UNDEFINED_DESCRIPTION;
     }
 
+    /**
+     * Instantiates a new rule.
+     *
+     * @param name the name of the rule
+     * @param description the description of the rule
+     */
+    public Rule(final String name, final String description) {
+        this.name = name;
+        this.description = description;
+    }
+
     /**
      * Returns the name of this rule.
      *
@@ -0,0 +1,110 @@
+package hudson.plugins.checkstyle.rules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary catalog of the rules of a category. The catalog contains the number
+ * of rules followed by the name and description of each rule, sorted by name.
+ * Strings are written as UTF-8 bytes prefixed with their length, so the
+ * catalog is read with a single sequential read.
+ *
+ * @author Ulli Hafner
+ */
+final class RuleCatalog {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int VERSION = 1;
+
+    /**
+     * Returns the name of the catalog of the specified category.
+     *
+     * @param category
+     *            the category
+     * @return the name of the resource
+     */
+    static String getFileName(final String category) {
+        return "catalog_" + category + ".bin";
+    }
+
+    /**
+     * Writes the specified rules to the catalog.
+     *
+     * @param rules
+     *            the rules to write
+     * @param outputStream
+     *            the catalog
+     * @throws IOException
+     *             if the catalog could not be written
+     */
+    static void write(final Collection<Rule> rules, final OutputStream outputStream) throws IOException {
+        List<Rule> sorted = new ArrayList<Rule>(rules);
+        Collections.sort(sorted, new Comparator<Rule>() {
+            @Override
+            public int compare(final Rule first, final Rule second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(VERSION);
+        output.writeInt(sorted.size());
+        for (Rule rule : sorted) {
+            writeString(rule.getName(), output);
+            writeString(rule.getDescription(), output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads the rules of the catalog.
+     *
+     * @param inputStream
+     *            the catalog
+     * @return the rules, mapped by rule name
+     * @throws IOException
+     *             if the catalog could not be read
+     */
+    static Map<String, Rule> read(final InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of rule catalog: " + version);
+        }
+        int size = input.readInt();
+        Map<String, Rule> rulesByName = new HashMap<String, Rule>();
+        for (int i = 0; i < size; i++) {
+            String name = readString(input);
+            rulesByName.put(name, new Rule(name, readString(input)));
+        }
+        return Collections.unmodifiableMap(rulesByName);
+    }
+
+    private static void writeString(final String value, final DataOutputStream output) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private RuleCatalog() {
+        // prevents instantiation
+    }
+}
@@ -23,6 +23,9 @@ import org.w3c.dom.Node;
  * @author Ulli Hafner
  */
 public class TopicRule extends NodeCreateRule {
+    /** The document that is used as owner of the output format, created on demand. */
+    private Document document;
+
     /**
      * Instantiates a new topic rule.
      *
@@ -57,10 +60,12 @@ public class TopicRule extends NodeCreateRule {
     protected String extractNoteContent(final Element subsection) throws ParserConfigurationException,
             IOException {
         StringWriter writer = new StringWriter();
-        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        Document doc = builder.newDocument();
+        if (document == null) {
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            document = builder.newDocument();
+        }
 
-        OutputFormat format = new OutputFormat(doc);
+        OutputFormat format = new OutputFormat(document);
         format.setOmitXMLDeclaration(true);
         XMLSerializer serializer = new XMLSerializer(writer, format);
         serializer.serialize(subsection);
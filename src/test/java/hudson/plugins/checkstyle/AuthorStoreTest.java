@@ -0,0 +1,120 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.checkstyle.parser.Warning;
+
+/**
+ * Tests the class {@link AuthorStore}.
+ *
+ * @author Ulli Hafner
+ */
+public class AuthorStoreTest {
+    /** Root directory of the job. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that a build without authors replaces the authors of the previous build as latest entry.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldAddBuildsWithoutAuthors() throws IOException {
+        Job<?, ?> job = createJob();
+        AuthorStore.append(createRun(job, 1), createAggregates("Alice", "Alice", "Bob"));
+
+        AuthorStore.Entry latest = AuthorStore.getLatest(job);
+        assertEquals("Wrong authors", Sets.newHashSet("Alice", "Bob"), latest.getAuthors());
+        assertEquals("Wrong count", 2, latest.getTotal("Alice", Priority.NORMAL));
+
+        AuthorStore.append(createRun(job, 2), createAggregates());
+
+        latest = AuthorStore.getLatest(job);
+        assertEquals("Wrong build", 2, latest.getBuild());
+        assertTrue("Authors of previous build", latest.getAuthors().isEmpty());
+        assertEquals("Wrong number of builds", 2, AuthorStore.read(job).size());
+        assertTrue("Authors of previous build", AuthorStore.getTotals(Collections.singletonList(job), 0)
+                .getAuthors().isEmpty());
+    }
+
+    /**
+     * Verifies that no author file is created for builds without authors.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldSkipJobsWithoutAuthors() throws IOException {
+        Job<?, ?> job = createJob();
+        AuthorStore.append(createRun(job, 1), createAggregates());
+
+        assertFalse("Author file created", new File(job.getRootDir(), AuthorStore.FILE_NAME).exists());
+        assertNull("Latest entry", AuthorStore.getLatest(job));
+    }
+
+    /**
+     * Verifies that only the last {@link AuthorStore#MAXIMUM_BUILDS} builds are kept and that deleted builds
+     * are removed.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldKeepLastBuilds() throws IOException {
+        Job<?, ?> job = createJob();
+        for (int build = 1; build <= AuthorStore.MAXIMUM_BUILDS + 1; build++) {
+            AuthorStore.append(createRun(job, build), createAggregates("Alice"));
+        }
+        List<AuthorStore.Entry> entries = AuthorStore.read(job);
+        assertEquals("Wrong number of builds", AuthorStore.MAXIMUM_BUILDS, entries.size());
+        assertEquals("Wrong first build", 2, entries.get(0).getBuild());
+
+        new AuthorStore.DeletionListener().onDeleted(createRun(job, AuthorStore.MAXIMUM_BUILDS + 1));
+        assertEquals("Wrong latest build", AuthorStore.MAXIMUM_BUILDS, AuthorStore.getLatest(job).getBuild());
+    }
+
+    private Job<?, ?> createJob() throws IOException {
+        File rootDir = folder.newFolder();
+        Job<?, ?> job = mock(Job.class);
+        when(job.getRootDir()).thenReturn(rootDir);
+        when(job.getFullName()).thenReturn(rootDir.getAbsolutePath());
+        return job;
+    }
+
+    private Run<?, ?> createRun(final Job<?, ?> job, final int number) {
+        Run<?, ?> run = mock(Run.class);
+        doReturn(job).when(run).getParent();
+        when(run.getNumber()).thenReturn(number);
+        when(run.getTimeInMillis()).thenReturn(System.currentTimeMillis());
+        return run;
+    }
+
+    private WarningAggregates createAggregates(final String... authors) {
+        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+        for (String author : authors) {
+            Warning warning = new Warning(Priority.NORMAL, "message", "category", "type", warnings.size() + 1);
+            warning.setAuthorName(author);
+            warnings.add(warning);
+        }
+        return new WarningAggregates(warnings, 0, 0);
+    }
+}
@@ -0,0 +1,62 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link CheckStyleColumn}.
+ *
+ * @author Ulli Hafner
+ */
+public class CheckStyleColumnTest {
+    /** Root directory of the job. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the column shows the record of the last completed build only.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldShowLastCompletedBuild() throws IOException {
+        File rootDir = folder.newFolder();
+        Job<?, ?> job = mock(Job.class);
+        when(job.getRootDir()).thenReturn(rootDir);
+        when(job.getFullName()).thenReturn(rootDir.getAbsolutePath());
+        CheckStyleColumn column = new CheckStyleColumn();
+
+        assertNull("Totals of job without trend", column.getCachedTotals(job));
+
+        Run<?, ?> first = createRun(job, 1);
+        TrendStore.append(first, new WarningAggregates(new ArrayList<FileAnnotation>(), 0, 0));
+        assertNull("Totals of job without completed build", column.getCachedTotals(job));
+
+        doReturn(first).when(job).getLastCompletedBuild();
+        assertEquals("Wrong build", 1, column.getCachedTotals(job).getBuild());
+
+        TrendStore.append(createRun(job, 2), new WarningAggregates(new ArrayList<FileAnnotation>(), 0, 0));
+        assertNull("Totals of build that is not completed", column.getCachedTotals(job));
+    }
+
+    private Run<?, ?> createRun(final Job<?, ?> job, final int number) {
+        Run<?, ?> run = mock(Run.class);
+        doReturn(job).when(run).getParent();
+        when(run.getNumber()).thenReturn(number);
+        when(run.getTimeInMillis()).thenReturn(number * 1000L);
+        return run;
+    }
+}
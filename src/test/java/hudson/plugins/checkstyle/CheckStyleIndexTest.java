@@ -0,0 +1,246 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.checkstyle.parser.Warning;
+
+/**
+ * Tests the class {@link CheckStyleIndex}.
+ *
+ * @author Ulli Hafner
+ */
+public class CheckStyleIndexTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = CheckStyleIndex.getDay(System.currentTimeMillis()) + DAY / 2;
+
+    /** Root directory of the jobs. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the history contains the specified number of calendar days, regardless of the number of
+     * days with builds.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldFilterCalendarDays() throws IOException {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, NOW - 10 * DAY, null);
+        Run<?, ?> second = createRun(job, 2, NOW - 2 * DAY, first);
+        Run<?, ?> third = createRun(job, 3, NOW, second);
+        TrendStore.append(first, createAggregates(1));
+        TrendStore.append(second, createAggregates(2));
+        TrendStore.append(third, createAggregates(3));
+
+        List<? extends Job<?, ?>> jobs = Collections.singletonList(job);
+        CheckStyleIndex index = CheckStyleIndex.getInstance();
+        assertTotals(index.getHistory(jobs, 0, NOW), 1, 2, 3);
+        assertTotals(index.getHistory(jobs, 3, NOW), 2, 3);
+        assertTotals(index.getHistory(jobs, 2, NOW), 3);
+        assertTotals(index.getHistory(jobs, 1, NOW), 3);
+        assertTotals(index.getHistory(jobs, 1, NOW + DAY));
+    }
+
+    /**
+     * Verifies that a new build is added to the history without reading the trend of the job again.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldAddNewBuild() throws IOException {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, NOW - DAY, null);
+        Run<?, ?> second = createRun(job, 2, NOW, first);
+        TrendStore.append(first, createAggregates(1));
+
+        CheckStyleIndex index = CheckStyleIndex.getInstance();
+        assertEquals("Wrong latest build", 1, index.getTotals(job).getBuild());
+
+        TrendStore.Entry entry = TrendStore.append(second, createAggregates(2));
+        assertTrue("Can't delete trend", new File(job.getRootDir(), TrendStore.FILE_NAME).delete());
+        index.add(job, entry);
+
+        assertEquals("Wrong latest build", 2, index.getTotals(job).getBuild());
+        assertTotals(index.getHistory(Collections.singletonList(job), 0, NOW), 1, 2);
+    }
+
+    /**
+     * Verifies that no build is lost if several builds of a job are added concurrently.
+     *
+     * @throws Exception
+     *             if the job could not be created or a build could not be added
+     */
+    @Test
+    public void shouldAddBuildsConcurrently() throws Exception {
+        final Job<?, ?> job = createJob();
+        int builds = 50;
+        Run<?, ?> previous = createRun(job, 1, NOW, null);
+        TrendStore.append(previous, createAggregates(1));
+
+        final CheckStyleIndex index = CheckStyleIndex.getInstance();
+        assertEquals("Wrong latest build", 1, index.getTotals(job).getBuild());
+
+        final List<TrendStore.Entry> entries = new ArrayList<TrendStore.Entry>();
+        for (int build = 2; build <= builds; build++) {
+            previous = createRun(job, build, NOW, previous);
+            entries.add(TrendStore.append(previous, createAggregates(build)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (final TrendStore.Entry entry : entries) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        index.add(job, entry);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertEquals("Wrong latest build", builds, index.getTotals(job).getBuild());
+        assertTotals(index.getHistory(Collections.singletonList(job), 0, NOW), builds);
+    }
+
+    /**
+     * Verifies that the history of a job is evicted if the job is moved or if its folder is deleted.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldEvictMovedAndDeletedJobs() throws IOException {
+        Job<?, ?> job = createJob();
+        TrendStore.append(createRun(job, 1, NOW, null), createAggregates(1));
+
+        CheckStyleIndex index = CheckStyleIndex.getInstance();
+        assertEquals("Wrong latest build", 1, index.getTotals(job).getBuild());
+        assertEquals("Wrong latest build", 1, TrendStore.getLatest(job).getBuild());
+
+        File file = new File(job.getRootDir(), TrendStore.FILE_NAME);
+        assertTrue("Can't delete trend", file.delete());
+        CheckStyleIndex.EvictionListener listener = new CheckStyleIndex.EvictionListener();
+        listener.onLocationChanged(job, job.getFullName(), "moved");
+        assertNull("History not evicted", index.getTotals(job));
+        assertNull("Totals not evicted", TrendStore.getLatest(job));
+
+        index.add(job, TrendStore.append(createRun(job, 2, NOW, null), createAggregates(2)));
+        assertEquals("Wrong latest build", 2, index.getTotals(job).getBuild());
+        assertTrue("Can't delete trend", file.delete());
+        Item folder = mock(Item.class);
+        when(folder.getFullName()).thenReturn(job.getRootDir().getParent());
+        listener.onDeleted(folder);
+        assertNull("History not evicted", index.getTotals(job));
+    }
+
+    /**
+     * Verifies that the trend of a job with Checkstyle results but without trend file is created when the job
+     * is queried, and that jobs without Checkstyle project action are skipped.
+     *
+     * @throws IOException
+     *             if the job could not be created
+     */
+    @Test
+    public void shouldMigrateJobsWithoutTrend() throws IOException {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, NOW - DAY, null);
+        Run<?, ?> second = createRun(job, 2, NOW, first);
+        addResult(first, 1);
+        addResult(second, 2);
+        doReturn(second).when(job).getLastCompletedBuild();
+
+        Job<?, ?> other = createJob();
+        doReturn(null).when(other).getAction(CheckStyleProjectAction.class);
+        doReturn(second).when(other).getLastCompletedBuild();
+
+        CheckStyleIndex index = CheckStyleIndex.getInstance();
+        assertEquals("Wrong latest build", 2, index.getTotals(job).getBuild());
+        assertTotals(index.getHistory(Collections.singletonList(job), 0, NOW), 1, 2);
+        assertTrue("No trend file", TrendStore.exists(job));
+
+        assertNull("Job without project action migrated", index.getTotals(other));
+        assertFalse("Job without project action migrated", TrendStore.exists(other));
+    }
+
+    private void assertTotals(final List<TrendStore.Entry> entries, final int... totals) {
+        List<Integer> actual = new ArrayList<Integer>();
+        for (TrendStore.Entry entry : entries) {
+            actual.add(entry.getTotal());
+        }
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int total : totals) {
+            expected.add(total);
+        }
+        assertEquals("Wrong totals", expected, actual);
+    }
+
+    private Job<?, ?> createJob() throws IOException {
+        File rootDir = folder.newFolder();
+        Job<?, ?> job = mock(Job.class);
+        when(job.getRootDir()).thenReturn(rootDir);
+        when(job.getFullName()).thenReturn(rootDir.getAbsolutePath());
+        doReturn(mock(CheckStyleProjectAction.class)).when(job).getAction(CheckStyleProjectAction.class);
+        return job;
+    }
+
+    private Run<?, ?> createRun(final Job<?, ?> job, final int number, final long timestamp,
+            final Run<?, ?> previous) {
+        Run<?, ?> run = mock(Run.class);
+        doReturn(job).when(run).getParent();
+        doReturn(previous).when(run).getPreviousBuild();
+        doReturn(Collections.emptyList()).when(run).getActions(ResultAction.class);
+        when(run.getNumber()).thenReturn(number);
+        when(run.getTimeInMillis()).thenReturn(timestamp);
+        return run;
+    }
+
+    private void addResult(final Run<?, ?> run, final int warnings) {
+        CheckStyleResult result = mock(CheckStyleResult.class);
+        when(result.getNumberOfAnnotations(Priority.NORMAL)).thenReturn(warnings);
+        when(result.getAggregates()).thenReturn(createAggregates(warnings));
+        ResultAction<?> action = mock(ResultAction.class);
+        doReturn(result).when(action).getResult();
+        doReturn(Arrays.asList(action)).when(run).getActions(ResultAction.class);
+    }
+
+    private WarningAggregates createAggregates(final int warnings) {
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        for (int line = 1; line <= warnings; line++) {
+            annotations.add(new Warning(Priority.NORMAL, "message", "category", "type", line));
+        }
+        return new WarningAggregates(annotations, 0, 0);
+    }
+}
@@ -0,0 +1,91 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.maven.MavenBuild;
+import hudson.maven.MavenBuildProxy;
+import hudson.maven.MavenModule;
+import hudson.maven.MojoInfo;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.PluginLogger;
+import hudson.plugins.checkstyle.parser.FailFastGate;
+
+/**
+ * Tests the class {@link CheckStyleReporter}.
+ *
+ * @author Ulli Hafner
+ */
+public class CheckStyleReporterTest {
+    /** Folder with the report and the root directories of the module and the build. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the result of a module is truncated if the fail-fast gate has been triggered, so that the
+     * sample of the warnings is not recorded in the trend.
+     *
+     * @throws Exception
+     *             if the report could not be parsed
+     */
+    @Test
+    public void shouldTruncateResultOfTriggeredGate() throws Exception {
+        File report = folder.newFile("checkstyle-result.xml");
+        InputStream input = CheckStyleReporterTest.class.getResourceAsStream("parser/checkstyle.xml");
+        try {
+            FileUtils.copyInputStreamToFile(input, report);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+        MojoInfo mojo = mock(MojoInfo.class);
+        when(mojo.getConfigurationValue("outputFile", String.class)).thenReturn(report.getAbsolutePath());
+        MavenBuildProxy proxy = mock(MavenBuildProxy.class);
+
+        CheckStyleReporter reporter = new CheckStyleReporter(null, null, null, false,
+                null, null, null, null, null, null, null, null,
+                "0", null, null, null, null, null, null, null,
+                false, false, false, false);
+        reporter.setFailFast(true);
+        ParserResult parsed = reporter.perform(proxy, mock(MavenProject.class), mojo, mock(PluginLogger.class));
+
+        verify(proxy).setResult(Result.FAILURE);
+        assertTrue("No sample", parsed.getNumberOfAnnotations() <= FailFastGate.SAMPLE_SIZE);
+
+        MavenModule module = mock(MavenModule.class);
+        File moduleDirectory = folder.newFolder();
+        when(module.getRootDir()).thenReturn(moduleDirectory);
+        when(module.getFullName()).thenReturn(moduleDirectory.getAbsolutePath());
+        MavenBuild build = mock(MavenBuild.class);
+        when(build.getRootDir()).thenReturn(folder.newFolder());
+        doReturn(module).when(build).getParent();
+        when(build.getNumber()).thenReturn(1);
+
+        CheckStyleResult result = reporter.createResult(build, parsed);
+        assertTrue("Result not truncated", result.isTruncated());
+        assertFalse("Truncated result is successful", result.isSuccessful());
+        assertTrue("Wrong number of counted warnings",
+                result.getNumberOfCountedWarnings() >= result.getNumberOfAnnotations());
+
+        ResultAction<?> action = mock(ResultAction.class);
+        doReturn(result).when(action).getResult();
+        doReturn(Arrays.asList(action)).when(build).getActions(ResultAction.class);
+        new TrendStore.RecordListener().onCompleted(build, TaskListener.NULL);
+
+        assertFalse("Truncated result recorded", TrendStore.exists(module));
+    }
+}
@@ -0,0 +1,29 @@
+package hudson.plugins.checkstyle;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link CheckStyleRulesAction}.
+ *
+ * @author Ulli Hafner
+ */
+public class CheckStyleRulesActionTest {
+    /**
+     * Verifies that the summary is created from the first sentence of the plain text and that it is escaped
+     * after it has been abbreviated.
+     */
+    @Test
+    public void shouldEscapeAbbreviatedPlainText() {
+        assertEquals("Wrong summary", "Checks that &lt;p&gt; is used",
+                CheckStyleRulesAction.createSummary("<p>Checks  that <code>&lt;p&gt;</code> is used. More</p>"));
+
+        String summary = CheckStyleRulesAction.createSummary(StringUtils.repeat("&amp; ", 150));
+        assertTrue("Summary not abbreviated", summary.endsWith("..."));
+        assertFalse("Entity cut", summary.replace("&amp;", "").contains("&"));
+
+        assertEquals("Wrong summary", StringUtils.EMPTY, CheckStyleRulesAction.createSummary(" "));
+    }
+}
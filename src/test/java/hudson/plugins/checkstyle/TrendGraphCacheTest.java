@@ -0,0 +1,161 @@
+package hudson.plugins.checkstyle;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link TrendGraphCache}.
+ *
+ * @author Ulli Hafner
+ */
+public class TrendGraphCacheTest {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 200;
+
+    /** Root directory of the job. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that a client that sends the ETag of the current rendering gets a 304 response.
+     *
+     * @throws IOException
+     *             if the graph could not be rendered
+     */
+    @Test
+    public void shouldAnswerNotModified() throws IOException {
+        Job<?, ?> job = createJob();
+        TrendGraphCache.CachedGraph graph = getGraph(job, Locale.ENGLISH);
+
+        String eTag = getETag(graph, null);
+
+        StaplerResponse response = createResponse();
+        graph.doMap(createRequest(eTag), response);
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getWriter();
+    }
+
+    /**
+     * Verifies that the ETag changes if the trend of the job changes, even if the last completed build is the
+     * same.
+     *
+     * @throws IOException
+     *             if the graph could not be rendered
+     */
+    @Test
+    public void shouldChangeETagIfTrendChanges() throws IOException {
+        Job<?, ?> job = createJob();
+        String eTag = getETag(getGraph(job, Locale.ENGLISH), null);
+        assertEquals("ETag changed", eTag, getETag(getGraph(job, Locale.ENGLISH), eTag));
+
+        append(job, 2);
+        File file = new File(job.getRootDir(), TrendStore.FILE_NAME);
+        assertTrue("Can't change time stamp", file.setLastModified(file.lastModified() + 10000));
+
+        TrendGraphCache.CachedGraph graph = getGraph(job, Locale.ENGLISH);
+        StaplerResponse response = createResponse();
+        graph.doMap(createRequest(eTag), response);
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).getWriter();
+    }
+
+    /**
+     * Verifies that the legend of each locale is rendered separately and that the responses vary with the
+     * language of the client.
+     *
+     * @throws IOException
+     *             if the graph could not be rendered
+     */
+    @Test
+    public void shouldRenderEachLocale() throws IOException {
+        Job<?, ?> job = createJob();
+        String eTag = getETag(getGraph(job, Locale.ENGLISH), null);
+
+        TrendGraphCache.CachedGraph graph = getGraph(job, Locale.GERMAN);
+        StaplerResponse response = createResponse();
+        graph.doMap(createRequest(eTag), response);
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setHeader("Vary", "Accept-Language");
+        assertEquals("Wrong number of renderings", 2, TrendGraphCache.getNumberOfRenderings(job));
+    }
+
+    /**
+     * Verifies that at most {@link TrendGraphCache#MAXIMUM_RENDERINGS} renderings are cached per job.
+     *
+     * @throws IOException
+     *             if the graph could not be rendered
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedRenderings() throws IOException {
+        Job<?, ?> job = createJob();
+        for (int i = 0; i < TrendGraphCache.MAXIMUM_RENDERINGS * 2; i++) {
+            getETag(TrendGraphCache.getGraph(job, TrendGraph.Type.TOTALS, WIDTH + i, HEIGHT, 0, Locale.ENGLISH), null);
+        }
+        assertEquals("Wrong number of renderings", TrendGraphCache.MAXIMUM_RENDERINGS,
+                TrendGraphCache.getNumberOfRenderings(job));
+
+        TrendGraphCache.evict(job);
+        assertEquals("Renderings not evicted", 0, TrendGraphCache.getNumberOfRenderings(job));
+    }
+
+    private TrendGraphCache.CachedGraph getGraph(final Job<?, ?> job, final Locale locale) {
+        return TrendGraphCache.getGraph(job, TrendGraph.Type.PRIORITY, WIDTH, HEIGHT, 0, locale);
+    }
+
+    private String getETag(final TrendGraphCache.CachedGraph graph, final String ifNoneMatch) throws IOException {
+        StaplerResponse response = createResponse();
+        graph.doMap(createRequest(ifNoneMatch), response);
+
+        ArgumentCaptor<String> eTag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), eTag.capture());
+        return eTag.getValue();
+    }
+
+    private StaplerRequest createRequest(final String ifNoneMatch) {
+        StaplerRequest request = mock(StaplerRequest.class);
+        when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+        return request;
+    }
+
+    private StaplerResponse createResponse() throws IOException {
+        StaplerResponse response = mock(StaplerResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        return response;
+    }
+
+    private Job<?, ?> createJob() throws IOException {
+        File rootDir = folder.newFolder();
+        Job<?, ?> job = mock(Job.class);
+        when(job.getRootDir()).thenReturn(rootDir);
+        when(job.getFullName()).thenReturn(rootDir.getAbsolutePath());
+        append(job, 1);
+        return job;
+    }
+
+    private void append(final Job<?, ?> job, final int number) {
+        Run<?, ?> run = mock(Run.class);
+        doReturn(job).when(run).getParent();
+        when(run.getNumber()).thenReturn(number);
+        when(run.getTimeInMillis()).thenReturn(number * 1000L);
+        TrendStore.append(run, new WarningAggregates(new ArrayList<FileAnnotation>(), 0, 0));
+    }
+}
@@ -0,0 +1,202 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.checkstyle.parser.Warning;
+
+/**
+ * Tests the class {@link TrendStore}.
+ *
+ * @author Ulli Hafner
+ */
+public class TrendStoreTest {
+    /** Root directory of the job. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that each build is recorded once, even if it is appended several times.
+     */
+    @Test
+    public void shouldRecordEachBuildOnce() {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, null);
+        Run<?, ?> second = createRun(job, 2, first);
+
+        TrendStore.append(first, createAggregates(1));
+        TrendStore.append(second, createAggregates(0));
+        TrendStore.append(second, createAggregates(2));
+
+        assertTotals(TrendStore.read(job), 1, 2);
+        assertEquals("Wrong size", 2 * TrendStore.RECORD_SIZE, getFile(job).length());
+        assertEquals("Wrong latest build", 2, TrendStore.getLatest(job).getTotal());
+    }
+
+    /**
+     * Verifies that the totals of the previous builds are copied from their results when the trend file is
+     * created, and that truncated results are skipped.
+     */
+    @Test
+    public void shouldMigrateResultsOfPreviousBuilds() {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, null);
+        Run<?, ?> second = createRun(job, 2, first);
+        Run<?, ?> third = createRun(job, 3, second);
+        addResult(first, 4, false);
+        addResult(second, 5, true);
+
+        TrendStore.append(third, createAggregates(3));
+
+        List<TrendStore.Entry> entries = TrendStore.read(job);
+        assertTotals(entries, 4, 3);
+        assertEquals("Wrong build", 1, entries.get(0).getBuild());
+        assertEquals("Wrong build", 3, entries.get(1).getBuild());
+    }
+
+    /**
+     * Verifies that an incomplete record, e.g. of a write that has been interrupted, is removed before the
+     * next build is appended.
+     *
+     * @throws IOException
+     *             if the trend file could not be written
+     */
+    @Test
+    public void shouldRemoveIncompleteRecord() throws IOException {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, null);
+        Run<?, ?> second = createRun(job, 2, first);
+        TrendStore.append(first, createAggregates(1));
+
+        FileOutputStream output = new FileOutputStream(getFile(job), true);
+        try {
+            output.write(new byte[TrendStore.RECORD_SIZE / 2]);
+        }
+        finally {
+            output.close();
+        }
+        assertTotals(TrendStore.read(job), 1);
+
+        TrendStore.append(second, createAggregates(2));
+
+        assertTotals(TrendStore.read(job), 1, 2);
+        assertEquals("Wrong size", 2 * TrendStore.RECORD_SIZE, getFile(job).length());
+    }
+
+    /**
+     * Verifies that a completed build is recorded with its final result and that truncated results are not
+     * recorded.
+     */
+    @Test
+    public void shouldRecordCompletedBuilds() {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, null);
+        Run<?, ?> second = createRun(job, 2, first);
+        addResult(first, 1, false);
+        addResult(second, 2, true);
+
+        TrendStore.RecordListener listener = new TrendStore.RecordListener();
+        listener.onCompleted(first, TaskListener.NULL);
+        listener.onCompleted(second, TaskListener.NULL);
+
+        assertTotals(TrendStore.read(job), 1);
+        assertEquals("Wrong index", 1, CheckStyleIndex.getInstance().getTotals(job).getTotal());
+    }
+
+    /**
+     * Verifies that deleted builds are removed from the trend.
+     */
+    @Test
+    public void shouldRemoveDeletedBuilds() {
+        Job<?, ?> job = createJob();
+        Run<?, ?> first = createRun(job, 1, null);
+        Run<?, ?> second = createRun(job, 2, first);
+        Run<?, ?> third = createRun(job, 3, second);
+        TrendStore.append(first, createAggregates(1));
+        TrendStore.append(second, createAggregates(2));
+        TrendStore.append(third, createAggregates(3));
+
+        new TrendStore.DeletionListener().onDeleted(second);
+        assertTotals(TrendStore.read(job), 1, 3);
+
+        new TrendStore.DeletionListener().onDeleted(third);
+        assertTotals(TrendStore.read(job), 1);
+        assertEquals("Wrong latest build", 1, TrendStore.getLatest(job).getBuild());
+    }
+
+    private void assertTotals(final List<TrendStore.Entry> entries, final int... totals) {
+        List<Integer> actual = new ArrayList<Integer>();
+        for (TrendStore.Entry entry : entries) {
+            actual.add(entry.getTotal());
+        }
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int total : totals) {
+            expected.add(total);
+        }
+        assertEquals("Wrong totals", expected, actual);
+    }
+
+    private File getFile(final Job<?, ?> job) {
+        return new File(job.getRootDir(), TrendStore.FILE_NAME);
+    }
+
+    private Job<?, ?> createJob() {
+        File rootDir;
+        try {
+            rootDir = folder.newFolder();
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+        Job<?, ?> job = mock(Job.class);
+        when(job.getRootDir()).thenReturn(rootDir);
+        when(job.getFullName()).thenReturn(rootDir.getAbsolutePath());
+        return job;
+    }
+
+    private Run<?, ?> createRun(final Job<?, ?> job, final int number, final Run<?, ?> previous) {
+        Run<?, ?> run = mock(Run.class);
+        doReturn(job).when(run).getParent();
+        doReturn(previous).when(run).getPreviousBuild();
+        doReturn(Collections.emptyList()).when(run).getActions(ResultAction.class);
+        when(run.getNumber()).thenReturn(number);
+        when(run.getTimeInMillis()).thenReturn(number * 1000L);
+        return run;
+    }
+
+    private void addResult(final Run<?, ?> run, final int warnings, final boolean isTruncated) {
+        CheckStyleResult result = mock(CheckStyleResult.class);
+        when(result.isTruncated()).thenReturn(isTruncated);
+        when(result.getNumberOfAnnotations(Priority.NORMAL)).thenReturn(warnings);
+        when(result.getAggregates()).thenReturn(createAggregates(warnings));
+        ResultAction<?> action = mock(ResultAction.class);
+        doReturn(result).when(action).getResult();
+        doReturn(Arrays.asList(action)).when(run).getActions(ResultAction.class);
+    }
+
+    private WarningAggregates createAggregates(final int warnings) {
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        for (int line = 1; line <= warnings; line++) {
+            annotations.add(new Warning(Priority.NORMAL, "message", "category", "type", line));
+        }
+        return new WarningAggregates(annotations, 0, 0);
+    }
+}
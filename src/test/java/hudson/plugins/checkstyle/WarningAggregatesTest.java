@@ -0,0 +1,49 @@
+package hudson.plugins.checkstyle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.checkstyle.parser.Warning;
+
+/**
+ * Tests the class {@link WarningAggregates}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningAggregatesTest {
+    /**
+     * Verifies that the aggregates count the warnings per author and priority.
+     */
+    @Test
+    public void shouldCountWarningsPerAuthor() {
+        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+        warnings.add(createWarning(Priority.HIGH, "Alice"));
+        warnings.add(createWarning(Priority.HIGH, "Alice"));
+        warnings.add(createWarning(Priority.LOW, "Alice"));
+        warnings.add(createWarning(Priority.NORMAL, "Bob"));
+        warnings.add(createWarning(Priority.NORMAL, null));
+
+        WarningAggregates aggregates = new WarningAggregates(warnings, 0, 0);
+
+        assertEquals("Wrong authors", Sets.newHashSet("Alice", "Bob"), aggregates.getAuthors());
+        assertEquals("Wrong high count", 2, aggregates.getTotal("Alice", Priority.HIGH));
+        assertEquals("Wrong normal count", 0, aggregates.getTotal("Alice", Priority.NORMAL));
+        assertEquals("Wrong low count", 1, aggregates.getTotal("Alice", Priority.LOW));
+        assertEquals("Wrong normal count", 1, aggregates.getTotal("Bob", Priority.NORMAL));
+        assertEquals("Wrong count of unknown author", 0, aggregates.getTotal("Carol", Priority.HIGH));
+    }
+
+    private Warning createWarning(final Priority priority, final String author) {
+        Warning warning = new Warning(priority, "message", "category", "type", 1);
+        warning.setAuthorName(author);
+        return warning;
+    }
+}
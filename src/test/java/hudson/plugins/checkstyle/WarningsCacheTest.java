@@ -0,0 +1,155 @@
+package hudson.plugins.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.checkstyle.parser.Warning;
+
+/**
+ * Tests the class {@link WarningsCache}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningsCacheTest {
+    private static final int MESSAGE_LENGTH = 600;
+    private static final int WARNINGS = 300;
+
+    /** Folder for the data files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Restores the default state of the cache.
+     */
+    @After
+    public void resetCache() {
+        WarningsCache.getInstance().setBudget(0);
+        WarningsCache.getInstance().setBudget(WarningsCache.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Verifies that the cache returns copies of the cached array.
+     *
+     * @throws IOException
+     *             if the data file could not be created
+     */
+    @Test
+    public void shouldReturnCopies() throws IOException {
+        WarningsCache cache = WarningsCache.getInstance();
+        File file = folder.newFile();
+        FileAnnotation[] warnings = createWarnings("a");
+
+        cache.put(file, warnings);
+        warnings[0] = null;
+
+        FileAnnotation[] cached = cache.get(file);
+        assertNotNull("Not cached", cached);
+        assertNotNull("Cached array changed", cached[0]);
+        cached[1] = null;
+        assertNotNull("Cached array changed", cache.get(file)[1]);
+    }
+
+    /**
+     * Verifies that changed data files are not served from the cache.
+     *
+     * @throws IOException
+     *             if the data file could not be created
+     */
+    @Test
+    public void shouldIgnoreChangedFiles() throws IOException {
+        WarningsCache cache = WarningsCache.getInstance();
+        File file = folder.newFile();
+        cache.put(file, createWarnings("a"));
+
+        assertTrue("Can't change time stamp", file.setLastModified(file.lastModified() - 10000));
+        assertNull("Changed file served from cache", cache.get(file));
+    }
+
+    /**
+     * Verifies that the least recently used entries are evicted if the budget is exceeded.
+     *
+     * @throws IOException
+     *             if the data files could not be created
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntries() throws IOException {
+        WarningsCache cache = WarningsCache.getInstance();
+        cache.setBudget(1);
+
+        File first = folder.newFile();
+        File second = folder.newFile();
+        File third = folder.newFile();
+        cache.put(first, createWarnings("a"));
+        cache.put(second, createWarnings("b"));
+        assertNotNull("Not cached", cache.get(first));
+
+        cache.put(third, createWarnings("c"));
+        assertNotNull("Recently used entry evicted", cache.get(first));
+        assertNull("Least recently used entry not evicted", cache.get(second));
+        assertNotNull("Not cached", cache.get(third));
+        assertTrue("Budget exceeded", cache.getSize() <= cache.getBudget());
+    }
+
+    /**
+     * Verifies that the warnings of a deleted build are removed.
+     *
+     * @throws IOException
+     *             if the data files could not be created
+     */
+    @Test
+    public void shouldRemoveWarningsOfDeletedBuild() throws IOException {
+        WarningsCache cache = WarningsCache.getInstance();
+        File deleted = folder.newFolder();
+        File other = folder.newFolder();
+        File first = new File(deleted, "checkstyle-warnings.bin");
+        File second = new File(other, "checkstyle-warnings.bin");
+        cache.put(first, createWarnings("a"));
+        cache.put(second, createWarnings("b"));
+
+        Run<?, ?> run = mock(Run.class);
+        when(run.getRootDir()).thenReturn(deleted);
+        new WarningsCache.EvictionListener().onDeleted(run);
+
+        assertNull("Warnings of deleted build cached", cache.get(first));
+        assertNotNull("Warnings of other build removed", cache.get(second));
+    }
+
+    /**
+     * Verifies that the size of the warnings is estimated from their strings and that shared strings are
+     * counted once.
+     */
+    @Test
+    public void shouldEstimateSizeFromStrings() {
+        FileAnnotation[] warnings = createWarnings("a");
+        long size = WarningsCache.estimateSize(warnings);
+        assertTrue("Messages not counted", size > 2L * MESSAGE_LENGTH * WARNINGS);
+
+        String message = StringUtils.repeat("x", MESSAGE_LENGTH);
+        FileAnnotation[] shared = new FileAnnotation[WARNINGS];
+        for (int i = 0; i < shared.length; i++) {
+            shared[i] = new Warning(Priority.NORMAL, message, "category", "type", i + 1);
+        }
+        assertTrue("Shared message counted several times", WarningsCache.estimateSize(shared) < size / 2);
+    }
+
+    private FileAnnotation[] createWarnings(final String prefix) {
+        FileAnnotation[] warnings = new FileAnnotation[WARNINGS];
+        for (int i = 0; i < warnings.length; i++) {
+            String message = prefix + i + StringUtils.repeat("x", MESSAGE_LENGTH);
+            warnings[i] = new Warning(Priority.NORMAL, message, "category", "type", i + 1);
+        }
+        return warnings;
+    }
+}
@@ -0,0 +1,153 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link CheckStyleFilesParser}.
+ *
+ * @author Ulli Hafner
+ */
+public class CheckStyleFilesParserTest {
+    private static final String FIRST_REPORT = "checkstyle[1],a.xml";
+    private static final String SECOND_REPORT = "checkstyle-b.xml";
+
+    /** The workspace with the reports. */
+    @Rule
+    public TemporaryFolder workspace = new TemporaryFolder();
+
+    /**
+     * Verifies that reports with Ant pattern characters in their names are parsed and that each warning refers
+     * to its report, regardless of the degree of parallelism.
+     *
+     * @throws Exception
+     *             if the reports could not be parsed
+     */
+    @Test
+    public void shouldParseEachReportOnce() throws Exception {
+        int first = copy("checkstyle.xml", FIRST_REPORT);
+        int second = copy("checkstyle-result-build2.xml", SECOND_REPORT);
+
+        for (int parallelism : new int[] {1, 2}) {
+            ParsedReports reports = parse(parallelism, null);
+
+            List<String> reportNames = reports.getReportNames();
+            assertEquals("Wrong number of reports", 2, reportNames.size());
+            assertEquals("Wrong number of warnings", first + second,
+                    reports.getResult().getNumberOfAnnotations());
+            assertEquals("Wrong number of warnings", first, countWarnings(reports, FIRST_REPORT));
+            assertEquals("Wrong number of warnings", second, countWarnings(reports, SECOND_REPORT));
+            assertTrue("Reports skipped", reports.getSkippedReports().isEmpty());
+        }
+    }
+
+    /**
+     * Verifies that reports that did not change since the previous build are not parsed again.
+     *
+     * @throws Exception
+     *             if the reports could not be parsed
+     */
+    @Test
+    public void shouldSkipUnchangedReports() throws Exception {
+        copy("checkstyle.xml", FIRST_REPORT);
+        int second = copy("checkstyle-result-build2.xml", SECOND_REPORT);
+
+        ParsedReports previous = parse(2, null);
+        ParsedReports unchanged = parse(2, previous);
+        assertEquals("Wrong number of skipped reports", 2, unchanged.getSkippedReports().size());
+        assertEquals("Wrong number of warnings", 0, unchanged.getResult().getNumberOfAnnotations());
+        assertEquals("Wrong digests", previous.getDigests(), unchanged.getDigests());
+
+        copy("checkstyle-result-build2.xml", FIRST_REPORT);
+        ParsedReports changed = parse(2, previous);
+        assertEquals("Wrong number of skipped reports", 1, changed.getSkippedReports().size());
+        assertTrue("Changed report skipped",
+                changed.getSkippedReports().contains(new File(workspace.getRoot(), SECOND_REPORT).getAbsolutePath()));
+        assertEquals("Wrong number of warnings", second, countWarnings(changed, FIRST_REPORT));
+        assertEquals("Wrong number of warnings", second, changed.getResult().getNumberOfAnnotations());
+    }
+
+    /**
+     * Verifies that relative file names in the reports are resolved against the workspace rather than against
+     * the report, regardless of the degree of parallelism.
+     *
+     * @throws Exception
+     *             if the reports could not be parsed
+     */
+    @Test
+    public void shouldResolveRelativeFileNamesInWorkspace() throws Exception {
+        File source = new File(workspace.getRoot(), "src/main/java/Foo.java");
+        FileUtils.writeStringToFile(source, "public class Foo {\n}\n", "UTF-8");
+        for (String fileName : new String[] {FIRST_REPORT, SECOND_REPORT}) {
+            FileUtils.writeStringToFile(new File(workspace.getRoot(), "target/" + fileName),
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<checkstyle version=\"5.0\">\n"
+                    + "<file name=\"src/main/java/Foo.java\">\n"
+                    + "<error line=\"1\" severity=\"error\" message=\"" + fileName + "\" "
+                    + "source=\"com.puppycrawl.tools.checkstyle.checks.design.FinalClassCheck\"/>\n"
+                    + "</file>\n</checkstyle>\n", "UTF-8");
+        }
+
+        for (int parallelism : new int[] {1, 2}) {
+            ParsedReports reports = parse(parallelism, null);
+
+            assertEquals("Wrong number of warnings", 2, reports.getResult().getNumberOfAnnotations());
+            for (FileAnnotation annotation : reports.getResult().getAnnotations()) {
+                assertEquals("Wrong file name", source.getAbsolutePath(), annotation.getFileName());
+            }
+        }
+    }
+
+    private ParsedReports parse(final int parallelism, final ParsedReports previous)
+            throws IOException, InterruptedException {
+        CheckStyleFilesParser parser;
+        if (previous == null) {
+            parser = new CheckStyleFilesParser("[Checkstyle] ", "**/*.xml", new CheckStyleParser(), false, false,
+                    parallelism);
+        }
+        else {
+            parser = new CheckStyleFilesParser("[Checkstyle] ", "**/*.xml", new CheckStyleParser(), false, false,
+                    parallelism, previous.getDigests());
+        }
+        return parser.invoke(workspace.getRoot(), null);
+    }
+
+    private int countWarnings(final ParsedReports reports, final String fileName) {
+        int index = reports.getReportNames().indexOf(new File(workspace.getRoot(), fileName).getAbsolutePath());
+        assertTrue("Report not found: " + fileName, index >= 0);
+
+        int count = 0;
+        for (FileAnnotation annotation : reports.getResult().getAnnotations()) {
+            if (((Warning)annotation).getReportIndex() == index) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int copy(final String resource, final String fileName) throws Exception {
+        InputStream input = CheckStyleFilesParserTest.class.getResourceAsStream(resource);
+        try {
+            FileUtils.copyInputStreamToFile(input, new File(workspace.getRoot(), fileName));
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        Collection<FileAnnotation> warnings = new CheckStyleParser().parse(
+                CheckStyleFilesParserTest.class.getResourceAsStream(resource), "");
+        return warnings.size();
+    }
+}
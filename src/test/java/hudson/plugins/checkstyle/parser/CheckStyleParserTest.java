@@ -1,11 +1,16 @@
 package hudson.plugins.checkstyle.parser;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
@@ -172,13 +177,135 @@ public class CheckStyleParserTest {
         assertTrue("Warning is not in checkstyle.xml file.", hasChecked);
     }
 
+    /**
+     * Verifies that the streaming parser creates the same warnings as the digester based parser.
+     *
+     * @throws InvocationTargetException Signals that an I/O exception has occurred
+     */
+    @Test
+    public void streamingParserShouldCreateSameWarnings() throws InvocationTargetException {
+        for (String fileName : new String[] {"checkstyle.xml", "issue19122.xml", "issue25511.xml",
+                "scalastyle-output.xml", "checkstyle-result-build2.xml"}) {
+            List<FileAnnotation> expected = new ArrayList<FileAnnotation>(parse(fileName));
+            List<FileAnnotation> actual = new ArrayList<FileAnnotation>(parse(fileName, new CheckStyleParser("", true)));
+
+            assertEquals("Wrong number of annotations detected in " + fileName, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                FileAnnotation expectedWarning = expected.get(i);
+                FileAnnotation actualWarning = actual.get(i);
+
+                assertEquals("Wrong message in " + fileName, expectedWarning.getMessage(), actualWarning.getMessage());
+                assertEquals("Wrong file in " + fileName, expectedWarning.getFileName(), actualWarning.getFileName());
+                assertEquals("Wrong priority in " + fileName, expectedWarning.getPriority(), actualWarning.getPriority());
+                assertEquals("Wrong category in " + fileName, expectedWarning.getCategory(), actualWarning.getCategory());
+                assertEquals("Wrong type in " + fileName, expectedWarning.getType(), actualWarning.getType());
+                assertEquals("Wrong line in " + fileName, expectedWarning.getPrimaryLineNumber(), actualWarning.getPrimaryLineNumber());
+                assertEquals("Wrong column in " + fileName, expectedWarning.getColumnStart(), actualWarning.getColumnStart());
+                assertEquals("Wrong hash code in " + fileName, expectedWarning.getContextHashCode(), actualWarning.getContextHashCode());
+            }
+        }
+    }
+
+    /**
+     * Verifies that the streaming parser rejects files that are not Checkstyle files.
+     */
+    @Test(expected = InvocationTargetException.class)
+    public void streamingParserShouldRejectOtherFormats() throws InvocationTargetException {
+        parse("project.ser.xml", new CheckStyleParser("", true));
+    }
+
+    /**
+     * Verifies that equal strings of different warnings reference the same instance.
+     *
+     * @throws InvocationTargetException Signals that an I/O exception has occurred
+     */
+    @Test
+    public void shouldShareEqualStrings() throws InvocationTargetException {
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>(parse("checkstyle.xml"));
+
+        FileAnnotation first = null;
+        for (FileAnnotation annotation : annotations) {
+            if ("RightCurlyCheck".equals(annotation.getType())) {
+                if (first == null) {
+                    first = annotation;
+                }
+                else {
+                    assertSame("Type is not shared.", first.getType(), annotation.getType());
+                    assertSame("Category is not shared.", first.getCategory(), annotation.getCategory());
+                    assertSame("Message is not shared.", first.getMessage(), annotation.getMessage());
+                    assertSame("Package is not shared.", first.getPackageName(), annotation.getPackageName());
+                }
+            }
+        }
+        assertNotNull("No RightCurlyCheck warning found.", first);
+        assertTrue("No memory saved.", StringPool.estimateSavedBytes(annotations) > 0);
+    }
+
+    /**
+     * Verifies that the fail-fast gate is triggered by the failed threshold of
+     * all priorities and keeps a sample of the warnings only.
+     *
+     * @throws InvocationTargetException
+     *             if the file could not be read
+     */
+    @Test
+    public void shouldTriggerFailFastGate() throws InvocationTargetException {
+        int expected = parse("checkstyle.xml").size();
+
+        Thresholds thresholds = new Thresholds();
+        thresholds.failedTotalAll = "0";
+        FailFastGate gate = new FailFastGate(thresholds);
+        Collection<FileAnnotation> sample = parse("checkstyle.xml",
+                new CheckStyleParser("UTF-8", true, new PackageNameCache(), gate));
+
+        assertTrue("Gate not triggered.", gate.isTriggered());
+        assertEquals("Wrong number of annotations kept.", Math.min(expected, FailFastGate.SAMPLE_SIZE), sample.size());
+
+        thresholds.failedTotalAll = String.valueOf(expected);
+        gate = new FailFastGate(thresholds);
+        assertEquals("Wrong number of annotations detected.", expected,
+                parse("checkstyle.xml", new CheckStyleParser("UTF-8", true, new PackageNameCache(), gate)).size());
+        assertFalse("Gate triggered.", gate.isTriggered());
+    }
+
+    /**
+     * Verifies that reports compressed with gzip are decompressed while parsing.
+     *
+     * @throws Exception
+     *             if the file could not be read or compressed
+     */
+    @Test
+    public void shouldParseCompressedReports() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream output = new GZIPOutputStream(compressed);
+        InputStream input = CheckStyleParserTest.class.getResourceAsStream("checkstyle.xml");
+        try {
+            IOUtils.copy(input, output);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+            output.close();
+        }
+
+        int expected = parse("checkstyle.xml").size();
+        for (boolean streaming : new boolean[] {false, true}) {
+            Collection<FileAnnotation> annotations = new CheckStyleParser("UTF-8", streaming).parse(
+                    new ByteArrayInputStream(compressed.toByteArray()), "empty");
+            assertEquals("Wrong number of annotations detected.", expected, annotations.size());
+        }
+    }
+
     private Collection<FileAnnotation> parse(final String fileName) throws InvocationTargetException {
+        return parse(fileName, new CheckStyleParser());
+    }
+
+    private Collection<FileAnnotation> parse(final String fileName, final CheckStyleParser parser) throws InvocationTargetException {
         Collection<FileAnnotation> annotations;
         InputStream inputStream = null;
         try {
             inputStream = CheckStyleParserTest.class.getResourceAsStream(fileName);
 
-            annotations = new CheckStyleParser().parse(inputStream, "empty");
+            annotations = parser.parse(inputStream, "empty");
         }
         finally {
             IOUtils.closeQuietly(inputStream);
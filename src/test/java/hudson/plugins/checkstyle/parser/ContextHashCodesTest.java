@@ -0,0 +1,73 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link ContextHashCodes}.
+ *
+ * @author Ulli Hafner
+ */
+public class ContextHashCodesTest {
+    /**
+     * Verifies that the context hash codes that are computed for all warnings
+     * of a file at once are the same as the hash codes of the parser API.
+     *
+     * @throws IOException
+     *             if the source file could not be written
+     */
+    @Test
+    public void batchedContextHashCodesShouldMatchParserApi() throws IOException {
+        java.io.File source = java.io.File.createTempFile("Source", ".java");
+        try {
+            List<String> lines = new ArrayList<String>();
+            for (int i = 0; i < 30; i++) {
+                lines.add("line " + i);
+            }
+            FileUtils.writeLines(source, "UTF-8", lines);
+
+            SortedSet<Integer> warningLines = new TreeSet<Integer>(Arrays.asList(0, 1, 5, 6, 15, 27, 29, 40));
+            ContextHashCodes hashCodes = new ContextHashCodes(source.getAbsolutePath(), "UTF-8", warningLines);
+            assertTrue("Source file not read", hashCodes.isReadable());
+            ReferenceParser reference = new ReferenceParser();
+            for (Integer line : warningLines) {
+                assertEquals("Wrong context hash code for line " + line,
+                        reference.create(source.getAbsolutePath(), line, "RightCurlyCheck"),
+                        hashCodes.get(line, "RightCurlyCheck"));
+            }
+
+            ContextHashCodes missing = new ContextHashCodes(source.getAbsolutePath() + ".missing", "UTF-8", warningLines);
+            assertFalse("Missing file is readable", missing.isReadable());
+            assertEquals("Wrong context hash code of missing file",
+                    reference.create(source.getAbsolutePath() + ".missing", 5, "RightCurlyCheck"),
+                    missing.get(5, "RightCurlyCheck"));
+        }
+        finally {
+            FileUtils.deleteQuietly(source);
+        }
+    }
+
+    /**
+     * Provides access to the context hash codes of the parser API.
+     */
+    private static class ReferenceParser extends CheckStyleParser {
+        private static final long serialVersionUID = 1L;
+
+        ReferenceParser() {
+            super("UTF-8");
+        }
+
+        int create(final String fileName, final int line, final String type) {
+            return createContextHashCode(fileName, line, type);
+        }
+    }
+}
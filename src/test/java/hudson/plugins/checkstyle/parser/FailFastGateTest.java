@@ -0,0 +1,77 @@
+package hudson.plugins.checkstyle.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.core.Thresholds;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link FailFastGate}.
+ *
+ * @author Ulli Hafner
+ */
+public class FailFastGateTest {
+    /**
+     * Verifies that duplicate warnings are counted only once, so that the gate is not triggered before the
+     * duplicates are removed from the result.
+     */
+    @Test
+    public void shouldCountDuplicatesOnce() {
+        Thresholds thresholds = new Thresholds();
+        thresholds.failedTotalHigh = "2";
+        FailFastGate gate = new FailFastGate(thresholds);
+
+        assertTrue("Warning not kept", gate.accept(createWarning(1)));
+        assertTrue("Warning not kept", gate.accept(createWarning(2)));
+        assertTrue("Warning not kept", gate.accept(createWarning(1)));
+        assertTrue("Warning not kept", gate.accept(createWarning(2)));
+
+        assertFalse("Gate triggered", gate.isTriggered());
+        assertEquals("Wrong number of warnings", 2, gate.getNumberOfWarnings(Priority.HIGH));
+
+        gate.accept(createWarning(3));
+        assertTrue("Gate not triggered", gate.isTriggered());
+        assertEquals("Wrong number of warnings", 3, gate.getNumberOfWarnings(Priority.HIGH));
+    }
+
+    /**
+     * Verifies that at most {@link FailFastGate#SAMPLE_SIZE} warnings are kept after the gate has been triggered.
+     */
+    @Test
+    public void shouldKeepSampleOnly() {
+        Thresholds thresholds = new Thresholds();
+        thresholds.failedTotalAll = "0";
+        FailFastGate gate = new FailFastGate(thresholds);
+
+        int kept = 0;
+        for (int line = 1; line <= FailFastGate.SAMPLE_SIZE * 2; line++) {
+            if (gate.accept(createWarning(line))) {
+                kept++;
+            }
+        }
+        assertTrue("Gate not triggered", gate.isTriggered());
+        assertEquals("Wrong number of warnings kept", FailFastGate.SAMPLE_SIZE, kept);
+        assertEquals("Wrong number of warnings", FailFastGate.SAMPLE_SIZE * 2,
+                gate.getNumberOfWarnings(Priority.HIGH));
+    }
+
+    /**
+     * Verifies that a gate without thresholds keeps all warnings.
+     */
+    @Test
+    public void shouldNeverTriggerWithoutThresholds() {
+        FailFastGate gate = new FailFastGate();
+        for (int line = 1; line <= FailFastGate.SAMPLE_SIZE * 2; line++) {
+            assertTrue("Warning not kept", gate.accept(createWarning(line)));
+        }
+        assertFalse("Gate triggered", gate.isTriggered());
+    }
+
+    private Warning createWarning(final int line) {
+        Warning warning = new Warning(Priority.HIGH, "message", "category", "type", line);
+        warning.setFileName("Foo.java");
+        return warning;
+    }
+}
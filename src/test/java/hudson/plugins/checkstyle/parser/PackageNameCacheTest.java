@@ -0,0 +1,79 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link PackageNameCache}.
+ *
+ * @author Ulli Hafner
+ */
+public class PackageNameCacheTest {
+    /** Folder with the job directory and the source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that package names are detected once and are detected again if the source file changes.
+     *
+     * @throws IOException
+     *             if the source file could not be written
+     */
+    @Test
+    public void shouldDetectChangedFiles() throws IOException {
+        String source = createSource("Foo.java", "com.example");
+        PackageNameCache cache = new PackageNameCache();
+
+        assertEquals("Wrong package name", "com.example", cache.getPackageName(source));
+        assertEquals("Wrong package name", "com.example", cache.getPackageName(source));
+        assertEquals("Wrong number of misses", 1, cache.getMisses());
+        assertEquals("Wrong number of hits", 1, cache.getHits());
+
+        FileUtils.writeStringToFile(new java.io.File(source), "package org.example.other;\n", "UTF-8");
+        assertEquals("Wrong package name", "org.example.other", cache.getPackageName(source));
+        assertEquals("Wrong number of misses", 2, cache.getMisses());
+    }
+
+    /**
+     * Verifies that the cache is stored in the job directory and that only the entries of the files that have
+     * been used in the last build are stored.
+     *
+     * @throws IOException
+     *             if the source files could not be written
+     */
+    @Test
+    public void shouldStoreUsedEntries() throws IOException {
+        java.io.File jobDirectory = folder.newFolder();
+        String first = createSource("First.java", "com.example.first");
+        String second = createSource("Second.java", "com.example.second");
+
+        PackageNameCache cache = PackageNameCache.load(jobDirectory);
+        cache.getPackageName(first);
+        cache.getPackageName(second);
+        cache.save(jobDirectory);
+
+        cache = PackageNameCache.load(jobDirectory);
+        assertEquals("Wrong package name", "com.example.first", cache.getPackageName(first));
+        assertEquals("Wrong number of hits", 1, cache.getHits());
+        cache.retainUsed();
+        cache.save(jobDirectory);
+
+        cache = PackageNameCache.load(jobDirectory);
+        cache.getPackageName(first);
+        cache.getPackageName(second);
+        assertEquals("Wrong number of hits", 1, cache.getHits());
+        assertEquals("Wrong number of misses", 1, cache.getMisses());
+    }
+
+    private String createSource(final String fileName, final String packageName) throws IOException {
+        java.io.File source = folder.newFile(fileName);
+        FileUtils.writeStringToFile(source, "package " + packageName + ";\n\npublic class Foo {\n}\n", "UTF-8");
+        return source.getAbsolutePath();
+    }
+}
@@ -0,0 +1,99 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link ParsedReports}.
+ *
+ * @author Ulli Hafner
+ */
+public class ParsedReportsTest {
+    /**
+     * Verifies that the warnings are transferred without loss with the compact encoding.
+     *
+     * @throws Exception
+     *             if the warnings could not be serialized
+     */
+    @Test
+    public void shouldTransferWarningsWithCompactEncoding() throws Exception {
+        List<FileAnnotation> expected = new ArrayList<FileAnnotation>(parse("checkstyle.xml"));
+        ParserResult result = new ParserResult();
+        result.addAnnotations(expected);
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(serialized);
+        output.writeObject(new ParsedReports(result, new PackageNameCache(), new ArrayList<String>(),
+                new HashMap<String, ReportDigest>(), new HashSet<String>(), new FailFastGate()));
+        output.close();
+
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray()));
+        ParserResult actual = ((ParsedReports)input.readObject()).getResult();
+        input.close();
+
+        assertEquals("Wrong number of annotations transferred.", expected.size(), actual.getNumberOfAnnotations());
+        for (FileAnnotation annotation : actual.getAnnotations()) {
+            Warning warning = (Warning)annotation;
+            FileAnnotation original = expected.get(expected.indexOf(warning));
+            assertEquals("Wrong file name", original.getFileName(), warning.getFileName());
+            assertEquals("Wrong package name", original.getPackageName(), warning.getPackageName());
+            assertEquals("Wrong module name", original.getModuleName(), warning.getModuleName());
+            assertEquals("Wrong category", original.getCategory(), warning.getCategory());
+            assertEquals("Wrong priority", original.getPriority(), warning.getPriority());
+            assertEquals("Wrong column", original.getColumnStart(), warning.getColumnStart());
+            assertEquals("Wrong hash code", original.getContextHashCode(), warning.getContextHashCode());
+        }
+    }
+
+    /**
+     * Verifies that only the classes of the model of a {@link ParserResult} are accepted when the result is
+     * deserialized.
+     */
+    @Test
+    public void shouldAcceptModelClassesOnly() {
+        assertTrue("Result rejected", ParsedReports.isAllowedClass(ParserResult.class.getName()));
+        assertTrue("Priority rejected", ParsedReports.isAllowedClass(Priority.class.getName()));
+        assertTrue("String rejected", ParsedReports.isAllowedClass(String.class.getName()));
+        assertTrue("Set rejected", ParsedReports.isAllowedClass(HashSet.class.getName()));
+        assertTrue("Array rejected", ParsedReports.isAllowedClass(String[][].class.getName()));
+        assertTrue("Array rejected", ParsedReports.isAllowedClass(int[].class.getName()));
+
+        assertFalse("Runtime accepted", ParsedReports.isAllowedClass(Runtime.class.getName()));
+        assertFalse("Queue accepted", ParsedReports.isAllowedClass(PriorityQueue.class.getName()));
+        assertFalse("Array accepted", ParsedReports.isAllowedClass(URL[].class.getName()));
+        assertFalse("Transformer accepted",
+                ParsedReports.isAllowedClass("org.apache.commons.collections.functors.InvokerTransformer"));
+    }
+
+    private Collection<FileAnnotation> parse(final String fileName) throws InvocationTargetException {
+        InputStream inputStream = null;
+        try {
+            inputStream = ParsedReportsTest.class.getResourceAsStream(fileName);
+
+            return new CheckStyleParser().parse(inputStream, "empty");
+        }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link WarningColumns}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningColumnsTest {
+    /**
+     * Verifies that the columnar storage format restores all properties of the warnings.
+     *
+     * @throws Exception
+     *             if the warnings could not be stored
+     */
+    @Test
+    public void shouldStoreWarningsInColumns() throws Exception {
+        List<Warning> expected = new ArrayList<Warning>();
+        for (FileAnnotation annotation : parse("checkstyle.xml")) {
+            expected.add((Warning)annotation);
+        }
+        assertTrue("Warnings can't be stored.", WarningColumns.canWrite(expected));
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        WarningColumns.write(expected, stored);
+        List<Warning> actual = WarningColumns.read(new ByteArrayInputStream(stored.toByteArray()));
+
+        assertEquals("Wrong number of warnings.", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Warning original = expected.get(i);
+            Warning warning = actual.get(i);
+            assertEquals("Wrong key", original.getKey(), warning.getKey());
+            assertEquals("Wrong message", original.getMessage(), warning.getMessage());
+            assertEquals("Wrong type", original.getType(), warning.getType());
+            assertEquals("Wrong line", original.getPrimaryLineNumber(), warning.getPrimaryLineNumber());
+            assertEquals("Wrong file name", original.getFileName(), warning.getFileName());
+            assertEquals("Wrong package name", original.getPackageName(), warning.getPackageName());
+            assertEquals("Wrong priority", original.getPriority(), warning.getPriority());
+            assertEquals("Wrong column", original.getColumnStart(), warning.getColumnStart());
+            assertEquals("Wrong hash code", original.getContextHashCode(), warning.getContextHashCode());
+        }
+    }
+
+    private Collection<FileAnnotation> parse(final String fileName) throws InvocationTargetException {
+        InputStream inputStream = null;
+        try {
+            inputStream = WarningColumnsTest.class.getResourceAsStream(fileName);
+
+            return new CheckStyleParser().parse(inputStream, "empty");
+        }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package hudson.plugins.checkstyle.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link WarningIndex}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningIndexTest {
+    /**
+     * Verifies that the index selects the warnings of a single type.
+     *
+     * @throws Exception
+     *             if the warnings could not be stored
+     */
+    @Test
+    public void shouldReadWarningsOfIndexedType() throws Exception {
+        List<Warning> warnings = new ArrayList<Warning>();
+        for (FileAnnotation annotation : parse("checkstyle.xml")) {
+            warnings.add((Warning)annotation);
+        }
+        String type = "DesignForExtensionCheck";
+        int expected = 0;
+        for (Warning warning : warnings) {
+            if (type.equals(warning.getType())) {
+                expected++;
+            }
+        }
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        WarningColumns.write(warnings, stored);
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        WarningIndex.write(warnings, index);
+
+        BitSet rows = WarningIndex.findRows(new ByteArrayInputStream(index.toByteArray()),
+                WarningIndex.Property.TYPE, type.hashCode());
+        assertNotNull("Type not indexed.", rows);
+        List<Warning> slice = WarningColumns.read(new ByteArrayInputStream(stored.toByteArray()), rows);
+
+        assertEquals("Wrong number of warnings.", expected, slice.size());
+        for (Warning warning : slice) {
+            assertEquals("Wrong type", type, warning.getType());
+        }
+        assertNull("Unknown type found.", WarningIndex.findRows(new ByteArrayInputStream(index.toByteArray()),
+                WarningIndex.Property.TYPE, "Unknown".hashCode()));
+    }
+
+    private Collection<FileAnnotation> parse(final String fileName) throws InvocationTargetException {
+        InputStream inputStream = null;
+        try {
+            inputStream = WarningIndexTest.class.getResourceAsStream(fileName);
+
+            return new CheckStyleParser().parse(inputStream, "empty");
+        }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package hudson.plugins.checkstyle.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link Warning}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningTest {
+    /**
+     * Verifies that a copy has the same properties but a new key, so that the copy can be added to another
+     * build without changing the original.
+     */
+    @Test
+    public void shouldCopyWarning() {
+        Warning original = new Warning(Priority.HIGH, "message", "category", "type", 10, 12);
+        original.setColumnPosition(3, 7);
+        original.setFileName("/workspace/src/Foo.java");
+        original.setModuleName("module");
+        original.setPackageName("com.example");
+        original.setPathName("/workspace");
+        original.setContextHashCode(42);
+        original.setAuthorName("author");
+        original.setReportIndex(2);
+        original.setBuild(5);
+
+        Warning copy = new Warning(original);
+        copy.setBuild(6);
+
+        assertNotEquals("Same key", original.getKey(), copy.getKey());
+        assertEquals("Wrong build", 5, original.getBuild());
+        assertEquals("Wrong priority", original.getPriority(), copy.getPriority());
+        assertEquals("Wrong message", original.getMessage(), copy.getMessage());
+        assertEquals("Wrong type", original.getType(), copy.getType());
+        assertEquals("Wrong line ranges", original.getLineRanges(), copy.getLineRanges());
+        assertEquals("Wrong column", original.getColumnEnd(), copy.getColumnEnd());
+        assertEquals("Wrong file name", original.getFileName(), copy.getFileName());
+        assertEquals("Wrong package name", original.getPackageName(), copy.getPackageName());
+        assertEquals("Wrong context hash code", original.getContextHashCode(), copy.getContextHashCode());
+        assertEquals("Wrong author", original.getAuthorName(), copy.getAuthorName());
+        assertEquals("Wrong report index", 2, copy.getReportIndex());
+    }
+
+    /**
+     * Verifies that a warning without report refers to no report.
+     */
+    @Test
+    public void shouldHaveNoReportByDefault() {
+        Warning warning = new Warning(Priority.LOW, "message", "category", "type", 1);
+
+        assertEquals("Wrong report index", -1, warning.getReportIndex());
+        warning.setReportIndex(0);
+        assertEquals("Wrong report index", 0, warning.getReportIndex());
+    }
+}
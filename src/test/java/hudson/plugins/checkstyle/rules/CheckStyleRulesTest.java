@@ -1,4 +1,10 @@
 package hudson.plugins.checkstyle.rules;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -30,4 +36,54 @@ public class CheckStyleRulesTest {
             assertNotEquals("Rule " + rule.getName() + " has no description.", Rule.UNDEFINED_DESCRIPTION, rule.getDescription());
         }
     }
+
+    /**
+     * Verifies that aliases and unknown rules are cached and counted.
+     */
+    @Test
+    public void shouldCacheAliasesAndUnknownRules() {
+        CheckStyleRules reader = CheckStyleRules.getInstance();
+        reader.initialize();
+        long hits = reader.getHitCount();
+        long misses = reader.getMissCount();
+
+        Rule alias = reader.getRule("EmptyBlockCheck");
+        assertEquals("Wrong rule for alias.", "EmptyBlock", alias.getName());
+        assertSame("Alias not cached.", alias, reader.getRule("EmptyBlockCheck"));
+
+        Rule unknown = reader.getRule("com.example.CustomCheck");
+        assertSame("Wrong description of unknown rule.", Rule.UNDEFINED_DESCRIPTION, unknown.getDescription());
+        assertSame("Unknown rule not cached.", unknown, reader.getRule("com.example.CustomCheck"));
+
+        assertEquals("Wrong number of hits.", hits + 2, reader.getHitCount());
+        assertEquals("Wrong number of misses.", misses + 2, reader.getMissCount());
+    }
+
+    /**
+     * Verifies that the precompiled catalog contains the same rules as the DocBook file.
+     *
+     * @throws Exception
+     *             if the rules could not be read or written
+     */
+    @Test
+    public void shouldReadSameRulesFromCatalog() throws Exception {
+        InputStream docBook = CheckStyleRules.class.getResourceAsStream(CheckStyleRules.getDocBookFileName("blocks"));
+        Map<String, Rule> expected;
+        try {
+            expected = CheckStyleRules.readDocBook(docBook);
+        }
+        finally {
+            IOUtils.closeQuietly(docBook);
+        }
+
+        ByteArrayOutputStream catalog = new ByteArrayOutputStream();
+        RuleCatalog.write(expected.values(), catalog);
+        Map<String, Rule> actual = RuleCatalog.read(new ByteArrayInputStream(catalog.toByteArray()));
+
+        assertEquals("Wrong rules in catalog.", expected.keySet(), actual.keySet());
+        for (Rule rule : expected.values()) {
+            assertEquals("Wrong description of " + rule.getName(), rule.getDescription(),
+                    actual.get(rule.getName()).getDescription());
+        }
+    }
 }